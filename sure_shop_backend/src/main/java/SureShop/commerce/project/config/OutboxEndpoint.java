@@ -0,0 +1,27 @@
+package SureShop.commerce.project.config;
+
+import SureShop.commerce.project.services.OutboxDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Actuator endpoint exposing order event outbox backlog and delivery lag at /actuator/outbox
+@Component
+@Endpoint(id = "outbox")
+public class OutboxEndpoint {
+
+    private final OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    public OutboxEndpoint(OutboxDispatcher outboxDispatcher) {
+        this.outboxDispatcher = outboxDispatcher;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return outboxDispatcher.stats();
+    }
+}
@@ -0,0 +1,27 @@
+package SureShop.commerce.project.config;
+
+import SureShop.commerce.project.services.PendingOrderReaper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Actuator endpoint exposing unpaid order expiry statistics at /actuator/orderreaper
+@Component
+@Endpoint(id = "orderreaper")
+public class PendingOrderReaperEndpoint {
+
+    private final PendingOrderReaper pendingOrderReaper;
+
+    @Autowired
+    public PendingOrderReaperEndpoint(PendingOrderReaper pendingOrderReaper) {
+        this.pendingOrderReaper = pendingOrderReaper;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return pendingOrderReaper.stats();
+    }
+}
@@ -0,0 +1,27 @@
+package SureShop.commerce.project.config;
+
+import SureShop.commerce.project.services.ProductCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Actuator endpoint exposing product cache statistics at /actuator/productcache
+@Component
+@Endpoint(id = "productcache")
+public class ProductCacheEndpoint {
+
+    private final ProductCache productCache;
+
+    @Autowired
+    public ProductCacheEndpoint(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return productCache.stats();
+    }
+}
@@ -0,0 +1,11 @@
+package SureShop.commerce.project.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Periodic jobs are @Scheduled methods on their services, run by Boot's task scheduler
+// (spring.task.scheduling.*), which lets a running job finish on shutdown
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,5 +1,6 @@
 package SureShop.commerce.project.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,6 +23,21 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    // Anonymous catalog routes; GETs on them also bypass JwtAuthenticationFilter
+    static final String[] PUBLIC_PRODUCT_PATHS = {
+            "/api/products",
+            "/api/products/{productId}",
+            "/api/products/search",
+            "/api/products/category/{category}",
+            "/api/products/top-rated",
+            "/api/products/categories",
+            "/api/products/facets",
+            "/api/products/{productId}/reviews",
+            "/api/products/scroll",
+            "/api/products/search/scroll",
+            "/api/products/{productId}/reviews/scroll"
+    };
+
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final UserDetailsService userDetailsService;
 
@@ -36,17 +52,14 @@ public class SecurityConfig {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Completion of an async response (e.g. invoice rendering); the request was authorized when it arrived
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**", "/swagger-ui/**", "/api-docs/**", "/actuator/**").permitAll()
-                .requestMatchers("/api/products").permitAll()
-                .requestMatchers("/api/products/{productId}").permitAll()
-                .requestMatchers("/api/products/search").permitAll()
-                .requestMatchers("/api/products/category/{category}").permitAll()
-                .requestMatchers("/api/products/top-rated").permitAll()
-                .requestMatchers("/api/products/categories").permitAll()
-                .requestMatchers("/api/products/{productId}/reviews").permitAll()
+                .requestMatchers(PUBLIC_PRODUCT_PATHS).permitAll()
                 .requestMatchers("/api/cart/**").authenticated()
-                .requestMatchers("/api/orders/checkout", "/api/orders/cancel/**", "/api/orders/my").authenticated()
+                .requestMatchers("/api/orders/checkout", "/api/orders/cancel/**", "/api/orders/my", "/api/orders/my/scroll").authenticated()
                 .requestMatchers("/api/orders/admin/**").hasRole("ADMIN")
+                .requestMatchers("/api/analytics/**").hasRole("ADMIN")
                 .requestMatchers("/api/payments/**").authenticated()
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,57 @@
+package SureShop.commerce.project.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Worker pools for background work. Each is bounded and rejects work once its queue is full; on shutdown it
+// stops taking work and waits up to task.shutdown.await-seconds for what is running or queued to finish.
+@Configuration
+public class TaskExecutorConfig {
+
+    private final int shutdownAwaitSeconds;
+
+    @Autowired
+    public TaskExecutorConfig(@Value("${task.shutdown.await-seconds:30}") int shutdownAwaitSeconds) {
+        this.shutdownAwaitSeconds = shutdownAwaitSeconds;
+    }
+
+    // Full rating rebuilds; RatingReconciliationService runs at most one at a time
+    @Bean
+    public ThreadPoolTaskExecutor ratingReconcilerExecutor() {
+        return executor("rating-reconciler-", 1, 1);
+    }
+
+    // Asynchronous checkouts; a full queue is answered with 429
+    @Bean
+    public ThreadPoolTaskExecutor checkoutExecutor(@Value("${checkout.async.workers:4}") int workers,
+                                                   @Value("${checkout.async.queue-capacity:500}") int queueCapacity) {
+        return executor("checkout-worker-", workers, queueCapacity);
+    }
+
+    // Rollup rebuilds; AnalyticsService runs at most one at a time
+    @Bean
+    public ThreadPoolTaskExecutor rollupRebuildExecutor() {
+        return executor("rollup-rebuild-", 1, 1);
+    }
+
+    // PDF invoice renders; a full queue is answered with 429, and bulk zips render on the caller's thread instead
+    @Bean
+    public ThreadPoolTaskExecutor invoiceExecutor(@Value("${invoice.workers:2}") int workers,
+                                                  @Value("${invoice.queue-capacity:50}") int queueCapacity) {
+        return executor("invoice-worker-", workers, queueCapacity);
+    }
+
+    private ThreadPoolTaskExecutor executor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownAwaitSeconds);
+        return executor;
+    }
+}
@@ -0,0 +1,91 @@
+package SureShop.commerce.project.controllers;
+
+import SureShop.commerce.project.dto.CategorySalesResponse;
+import SureShop.commerce.project.dto.DailySalesResponse;
+import SureShop.commerce.project.dto.ProductSalesResponse;
+import SureShop.commerce.project.dto.RollupRebuildStatus;
+import SureShop.commerce.project.services.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Admin sales dashboards; every read comes from the rollup tables, never from orders
+@RestController
+@RequestMapping("/api/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+public class AnalyticsController {
+    private final AnalyticsService analyticsService;
+
+    @Autowired
+    public AnalyticsController(AnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    // Orders, units and revenue per day
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailySalesResponse>> getDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(analyticsService.getDailySales(from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Best-selling products by revenue over the days
+    @GetMapping("/products")
+    public ResponseEntity<List<ProductSalesResponse>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(analyticsService.getTopProducts(from, to, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Totals per category over the days
+    @GetMapping("/categories")
+    public ResponseEntity<List<CategorySalesResponse>> getCategorySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(analyticsService.getCategorySales(from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Recompute the rollups of the days from..to from the orders; 202 with the job status to poll
+    @PostMapping("/rebuild")
+    public ResponseEntity<RollupRebuildStatus> startRebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/analytics/rebuild")
+                    .body(analyticsService.startRebuild(from, to));
+        } catch (AnalyticsService.RebuildRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Status of the last rebuild
+    @GetMapping("/rebuild")
+    public ResponseEntity<RollupRebuildStatus> getRebuildStatus() {
+        return analyticsService.getRebuildStatus()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,13 +1,18 @@
 package SureShop.commerce.project.controllers;
 
+import SureShop.commerce.project.dto.CartBatchRequest;
 import SureShop.commerce.project.dto.CartItemRequest;
 import SureShop.commerce.project.dto.CartResponse;
+import SureShop.commerce.project.services.AuthenticatedUser;
 import SureShop.commerce.project.services.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
@@ -21,11 +26,21 @@ public class CartController {
 
     // Get user's cart
     @GetMapping
-    public ResponseEntity<CartResponse> getUserCart(Authentication authentication) {
+    public ResponseEntity<CartResponse> getUserCart(
+            Authentication authentication,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            String username = authentication.getName();
-            CartResponse cart = cartService.getUserCart(username);
-            return ResponseEntity.ok(cart);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            if (ifNoneMatch != null) {
+                Optional<String> etag = cartService.getCartVersion(userId).map(version -> ETags.of("c" + userId, version));
+                if (etag.isPresent() && ETags.matches(ifNoneMatch, etag.get())) {
+                    return ETags.notModified(etag.get());
+                }
+            }
+            CartResponse cart = cartService.getUserCart(userId);
+            return ResponseEntity.ok()
+                    .eTag(ETags.of("c" + userId, cart.getVersion()))
+                    .body(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -37,8 +52,8 @@ public class CartController {
             @RequestBody CartItemRequest request,
             Authentication authentication) {
         try {
-            String username = authentication.getName();
-            CartResponse cart = cartService.addItemToCart(username, request);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CartResponse cart = cartService.addItemToCart(userId, request);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
@@ -52,8 +67,8 @@ public class CartController {
             @RequestBody CartItemRequest request,
             Authentication authentication) {
         try {
-            String username = authentication.getName();
-            CartResponse cart = cartService.updateCartItem(username, productId, request);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CartResponse cart = cartService.updateCartItem(userId, productId, request);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
@@ -66,8 +81,22 @@ public class CartController {
             @PathVariable Long productId,
             Authentication authentication) {
         try {
-            String username = authentication.getName();
-            CartResponse cart = cartService.removeItemFromCart(username, productId);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CartResponse cart = cartService.removeItemFromCart(userId, productId);
+            return ResponseEntity.ok(cart);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    // Apply several add/update/remove operations at once
+    @PostMapping("/batch")
+    public ResponseEntity<CartResponse> applyBatch(
+            @RequestBody CartBatchRequest request,
+            Authentication authentication) {
+        try {
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CartResponse cart = cartService.applyBatch(userId, request);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
@@ -78,8 +107,8 @@ public class CartController {
     @DeleteMapping("/clear")
     public ResponseEntity<CartResponse> clearCart(Authentication authentication) {
         try {
-            String username = authentication.getName();
-            CartResponse cart = cartService.clearCart(username);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CartResponse cart = cartService.clearCart(userId);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
@@ -90,8 +119,8 @@ public class CartController {
     @GetMapping("/count")
     public ResponseEntity<Integer> getCartItemCount(Authentication authentication) {
         try {
-            String username = authentication.getName();
-            Integer count = cartService.getCartItemCount(username);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            Integer count = cartService.getCartItemCount(userId);
             return ResponseEntity.ok(count);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(0);
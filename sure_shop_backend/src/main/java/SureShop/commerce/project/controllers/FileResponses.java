@@ -0,0 +1,62 @@
+package SureShop.commerce.project.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Download responses for generated files
+final class FileResponses {
+
+    // Tomcat's sendfile contract: a response with these request attributes and no body is sent by the connector
+    // straight from the file to the socket, without copying it through the JVM
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileResponses() {
+    }
+
+    // Hand the file to the connector's sendfile when it supports it. Returns false when it does not, and the caller
+    // has to send the file itself. Only works for responses completed on the request thread: Tomcat does not
+    // sendfile the result of an async dispatch.
+    static boolean sendfile(HttpServletRequest request, HttpServletResponse response, Path file, MediaType type,
+                            String filename) throws IOException {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        long size = Files.size(file);
+        headers(response, type, size, filename);
+        request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, size);
+        return true;
+    }
+
+    // Copy the file into the response, for handlers that complete the response themselves
+    static void write(HttpServletResponse response, Path file, MediaType type, String filename) throws IOException {
+        headers(response, type, Files.size(file), filename);
+        Files.copy(file, response.getOutputStream());
+    }
+
+    static void write(HttpServletResponse response, byte[] content, MediaType type, String filename) throws IOException {
+        headers(response, type, content.length, filename);
+        response.getOutputStream().write(content);
+    }
+
+    private static void headers(HttpServletResponse response, MediaType type, long size, String filename) {
+        response.setContentType(type.toString());
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition(filename));
+    }
+
+    private static String disposition(String filename) {
+        return ContentDisposition.inline().filename(filename).build().toString();
+    }
+}
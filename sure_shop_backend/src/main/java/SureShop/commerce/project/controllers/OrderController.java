@@ -1,58 +1,197 @@
 package SureShop.commerce.project.controllers;
 
+import SureShop.commerce.project.dto.CheckoutRequestStatus;
+import SureShop.commerce.project.dto.CursorPage;
+import SureShop.commerce.project.dto.InvoiceKey;
 import SureShop.commerce.project.dto.OrderRequest;
 import SureShop.commerce.project.dto.OrderResponse;
+import SureShop.commerce.project.dto.OrderSearchRequest;
+import SureShop.commerce.project.dto.OrderSummaryResponse;
 import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.services.AuthenticatedUser;
+import SureShop.commerce.project.services.CheckoutQueue;
+import SureShop.commerce.project.services.IdempotencyService;
+import SureShop.commerce.project.services.InvoiceService;
 import SureShop.commerce.project.services.OrderService;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
     private final OrderService orderService;
+    private final CheckoutQueue checkoutQueue;
+    private final IdempotencyService idempotencyService;
+    private final InvoiceService invoiceService;
+    private final long asyncTimeoutMillis;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, CheckoutQueue checkoutQueue, IdempotencyService idempotencyService,
+                           InvoiceService invoiceService,
+                           @Value("${spring.mvc.async.request-timeout:30000}") long asyncTimeoutMillis) {
         this.orderService = orderService;
+        this.checkoutQueue = checkoutQueue;
+        this.idempotencyService = idempotencyService;
+        this.invoiceService = invoiceService;
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
     }
 
-    // Checkout (user)
+    // Checkout (user); a retry with the same Idempotency-Key replays the first order instead of placing another
     @PostMapping("/checkout")
-    public ResponseEntity<OrderResponse> checkout(@RequestBody OrderRequest request, Authentication authentication) {
+    public ResponseEntity<OrderResponse> checkout(
+            @RequestBody OrderRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+        return idempotencyService.execute(userId, "orders/checkout", idempotencyKey, request, OrderResponse.class, () -> {
+            try {
+                OrderResponse order = orderService.checkout(userId, request);
+                return ResponseEntity.ok(order);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(null);
+            }
+        });
+    }
+
+    // Asynchronous checkout (user): 202 with a request id to poll, 429 when the queue is full
+    @PostMapping("/checkout/async")
+    public ResponseEntity<CheckoutRequestStatus> checkoutAsync(@RequestBody OrderRequest request, Authentication authentication) {
         try {
-            String username = authentication.getName();
-            OrderResponse order = orderService.checkout(username, request);
-            return ResponseEntity.ok(order);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            CheckoutRequestStatus status = checkoutQueue.submit(userId, request);
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/orders/checkout/requests/" + status.getRequestId())
+                    .body(status);
+        } catch (CheckoutQueue.QueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    // Status of an asynchronous checkout (user)
+    @GetMapping("/checkout/requests/{requestId}")
+    public ResponseEntity<CheckoutRequestStatus> getCheckoutStatus(@PathVariable String requestId, Authentication authentication) {
+        Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+        return checkoutQueue.getStatus(userId, requestId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     // Cancel order (user)
     @PutMapping("/cancel/{orderId}")
     public ResponseEntity<OrderResponse> cancelOrder(@PathVariable Long orderId, Authentication authentication) {
         try {
-            String username = authentication.getName();
-            OrderResponse order = orderService.cancelOrder(username, orderId);
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            OrderResponse order = orderService.cancelOrder(userId, orderId);
             return ResponseEntity.ok(order);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    // Invoice PDF (order owner or admin). A cached invoice is sent straight from disk on this thread, where the
+    // connector can sendfile it; otherwise this request thread is released while the invoice workers render, and
+    // the response is written once the render completes. 429 when the render queue is full.
+    @GetMapping("/{orderId}/invoice")
+    public void getInvoice(@PathVariable Long orderId,
+                           Authentication authentication,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+        boolean isAdmin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
+        Optional<InvoiceKey> key = invoiceService.findInvoiceKey(orderId, userId, isAdmin);
+        if (key.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String filename = "invoice-" + orderId + ".pdf";
+        Optional<Path> cached = invoiceService.cachedFile(key.get());
+        if (cached.isPresent()) {
+            if (!FileResponses.sendfile(request, response, cached.get(), MediaType.APPLICATION_PDF, filename)) {
+                FileResponses.write(response, cached.get(), MediaType.APPLICATION_PDF, filename);
+            }
+            return;
+        }
+        CompletableFuture<InvoiceService.Invoice> rendering;
+        try {
+            rendering = invoiceService.render(key.get());
+        } catch (InvoiceService.BusyException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        async.setTimeout(asyncTimeoutMillis);
+        rendering.whenComplete((invoice, error) -> {
+            try {
+                // Write on a container thread, so a slow client never holds an invoice worker
+                async.start(() -> {
+                    HttpServletResponse asyncResponse = (HttpServletResponse) async.getResponse();
+                    try {
+                        if (error != null) {
+                            asyncResponse.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                        } else {
+                            FileResponses.write(asyncResponse, invoice.content(), MediaType.APPLICATION_PDF, filename);
+                        }
+                    } catch (IOException e) {
+                        // client went away
+                    } finally {
+                        async.complete();
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // the request timed out and the container has already answered it
+            }
+        });
+    }
+
     // User order history
     @GetMapping("/my")
     public ResponseEntity<Page<OrderResponse>> getUserOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             Authentication authentication) {
-        String username = authentication.getName();
-        return ResponseEntity.ok(orderService.getUserOrders(username, page, size));
+        Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+        return ResponseEntity.ok(orderService.getUserOrders(userId, page, size));
+    }
+
+    // User order history, cursor mode
+    @GetMapping("/my/scroll")
+    public ResponseEntity<CursorPage<OrderResponse>> scrollUserOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        try {
+            Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+            return ResponseEntity.ok(orderService.scrollUserOrders(userId, after, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Admin: all orders
@@ -64,6 +203,50 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(page, size));
     }
 
+    // Admin: all orders, cursor mode
+    @GetMapping("/admin/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderResponse>> scrollAllOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(orderService.scrollAllOrders(after, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Admin: search orders by status, creation time range, user and total range; cursor mode, newest first
+    @GetMapping("/admin/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderSummaryResponse>> searchOrders(
+            @ModelAttribute OrderSearchRequest request,
+            @RequestParam(required = false) String after) {
+        try {
+            return ResponseEntity.ok(orderService.searchOrders(request, after));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Admin: zip of the invoices of orders created in [from, to), rendered in parallel and streamed as they finish
+    @GetMapping("/admin/invoices")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> downloadInvoices(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            List<InvoiceKey> keys = invoiceService.findInvoiceKeys(from, to);
+            StreamingResponseBody body = out -> invoiceService.writeZip(keys, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("invoices.zip").build().toString())
+                    .body(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Admin: update order status
     @PutMapping("/admin/{orderId}/status")
     @PreAuthorize("hasRole('ADMIN')")
@@ -3,6 +3,8 @@ package SureShop.commerce.project.controllers;
 import SureShop.commerce.project.dto.PaymentRequest;
 import SureShop.commerce.project.dto.PaymentResponse;
 import SureShop.commerce.project.dto.PaymentConfirmationRequest;
+import SureShop.commerce.project.services.AuthenticatedUser;
+import SureShop.commerce.project.services.IdempotencyService;
 import SureShop.commerce.project.services.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -13,10 +15,12 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/payments")
 public class PaymentController {
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, IdempotencyService idempotencyService) {
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/create-session")
@@ -30,13 +34,20 @@ public class PaymentController {
         }
     }
 
+    // A retry with the same Idempotency-Key replays the first confirmation instead of applying it again
     @PostMapping("/confirm")
-    public ResponseEntity<PaymentResponse> confirmPayment(@RequestBody PaymentConfirmationRequest request, Authentication authentication) {
-        try {
-            PaymentResponse response = paymentService.confirmPayment(request);
-            return ResponseEntity.ok(response);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<PaymentResponse> confirmPayment(
+            @RequestBody PaymentConfirmationRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        Long userId = ((AuthenticatedUser) authentication.getPrincipal()).getId();
+        return idempotencyService.execute(userId, "payments/confirm", idempotencyKey, request, PaymentResponse.class, () -> {
+            try {
+                PaymentResponse response = paymentService.confirmPayment(request);
+                return ResponseEntity.ok(response);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(null);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -1,63 +1,129 @@
 package SureShop.commerce.project.controllers;
 
 import SureShop.commerce.project.dto.*;
+import SureShop.commerce.project.services.AuthenticatedUser;
+import SureShop.commerce.project.services.ProductExportService;
+import SureShop.commerce.project.services.ProductImportService;
 import SureShop.commerce.project.services.ProductService;
+import SureShop.commerce.project.services.RatingReconciliationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
     
     private final ProductService productService;
+    private final RatingReconciliationService ratingReconciliationService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, RatingReconciliationService ratingReconciliationService,
+                             ProductImportService productImportService, ProductExportService productExportService) {
         this.productService = productService;
+        this.ratingReconciliationService = ratingReconciliationService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
     }
 
     // Public endpoints (no authentication required)
     @GetMapping
-    public ResponseEntity<Page<ProductResponse>> getAllProducts(
+    public ResponseEntity<Page<ProductCardResponse>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        return ResponseEntity.ok(productService.getAllProducts(page, size));
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogListing(ifNoneMatch, () -> productService.getAllProducts(page, size));
+    }
+
+    // Cursor mode of the catalog listing: pass the returned nextCursor as "after" to get the next slice
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProductCardResponse>> scrollProducts(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            ProductSearchRequest request = new ProductSearchRequest();
+            request.setSize(size);
+            return catalogListing(ifNoneMatch, () -> productService.scrollProducts(request, after));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{productId}")
-    public ResponseEntity<ProductResponse> getProduct(@PathVariable Long productId) {
+    public ResponseEntity<ProductResponse> getProduct(
+            @PathVariable Long productId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            if (ifNoneMatch != null) {
+                Optional<Long> version = productService.getProductVersion(productId);
+                if (version.isEmpty()) {
+                    return ResponseEntity.notFound().build();
+                }
+                String etag = ETags.of("p" + productId, version.get());
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    return ETags.notModified(etag);
+                }
+            }
             ProductResponse product = productService.getProduct(productId);
-            return ResponseEntity.ok(product);
+            return ResponseEntity.ok()
+                    .eTag(ETags.of("p" + productId, product.getVersion()))
+                    .body(product);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<ProductResponse>> searchProducts(@ModelAttribute ProductSearchRequest request) {
-        return ResponseEntity.ok(productService.searchProducts(request));
+    public ResponseEntity<Page<ProductCardResponse>> searchProducts(
+            @ModelAttribute ProductSearchRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogListing(ifNoneMatch, () -> productService.searchProducts(request));
+    }
+
+    @GetMapping("/search/scroll")
+    public ResponseEntity<CursorPage<ProductCardResponse>> scrollSearchProducts(
+            @ModelAttribute ProductSearchRequest request,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            return catalogListing(ifNoneMatch, () -> productService.scrollProducts(request, after));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<Page<ProductResponse>> getProductsByCategory(
+    public ResponseEntity<Page<ProductCardResponse>> getProductsByCategory(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        return ResponseEntity.ok(productService.getProductsByCategory(category, page, size));
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogListing(ifNoneMatch, () -> productService.getProductsByCategory(category, page, size));
     }
 
     @GetMapping("/top-rated")
-    public ResponseEntity<Page<ProductResponse>> getTopRatedProducts(
+    public ResponseEntity<Page<ProductCardResponse>> getTopRatedProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        return ResponseEntity.ok(productService.getTopRatedProducts(page, size));
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogListing(ifNoneMatch, () -> productService.getTopRatedProducts(page, size));
     }
 
     @GetMapping("/categories")
@@ -65,6 +131,11 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllCategories());
     }
 
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsResponse> getFacets(@ModelAttribute ProductSearchRequest request) {
+        return ResponseEntity.ok(productService.getFacets(request));
+    }
+
     @GetMapping("/{productId}/reviews")
     public ResponseEntity<Page<ReviewResponse>> getProductReviews(
             @PathVariable Long productId,
@@ -73,6 +144,18 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductReviews(productId, page, size));
     }
 
+    @GetMapping("/{productId}/reviews/scroll")
+    public ResponseEntity<CursorPage<ReviewResponse>> scrollProductReviews(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(productService.scrollProductReviews(productId, after, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Admin endpoints (require ROLE_ADMIN)
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -109,6 +192,50 @@ public class ProductController {
         }
     }
 
+    // Bulk import: streams NDJSON (application/x-ndjson) or CSV (text/csv) ProductRequest records from the body
+    @PostMapping(value = "/admin/import", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportReport> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        ProductImportReport report = contentType.startsWith("text/csv")
+                ? productImportService.importCsv(body)
+                : productImportService.importNdjson(body);
+        return ResponseEntity.ok(report);
+    }
+
+    // Full active catalog export, streamed as NDJSON (default) or CSV
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        StreamingResponseBody body = csv ? productExportService::exportCsv : productExportService::exportNdjson;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    // Rebuild rating aggregates from reviews: one product synchronously, or the whole catalog in the background
+    @PostMapping("/admin/ratings/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconcileRatings(@RequestParam(required = false) Long productId) {
+        if (productId != null) {
+            ratingReconciliationService.reconcileProduct(productId);
+            return ResponseEntity.ok("Product ratings reconciled");
+        }
+        if (!ratingReconciliationService.startReconciliation()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Reconciliation already running");
+        }
+        return ResponseEntity.accepted().body("Reconciliation started");
+    }
+
+    @GetMapping("/admin/ratings/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getReconciliationStatus() {
+        return ResponseEntity.ok(ratingReconciliationService.getStatus());
+    }
+
     // User endpoints (require authentication)
     @PostMapping("/{productId}/reviews")
     public ResponseEntity<ReviewResponse> addReview(
@@ -116,11 +243,20 @@ public class ProductController {
             @RequestBody ReviewRequest request,
             Authentication authentication) {
         try {
-            String username = authentication.getName();
-            ReviewResponse review = productService.addReview(productId, username, request);
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            ReviewResponse review = productService.addReview(productId, user, request);
             return ResponseEntity.ok(review);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
-} 
\ No newline at end of file
+
+    // Listings are tagged with the shared catalog version, read before the query so a tag never outlives its body
+    private <T> ResponseEntity<T> catalogListing(String ifNoneMatch, Supplier<T> listing) {
+        String etag = ETags.of("catalog", productService.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(listing.get());
+    }
+}
@@ -0,0 +1,9 @@
+package SureShop.commerce.project.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CartBatchRequest {
+    private List<CartOperationRequest> operations; // applied in order
+}
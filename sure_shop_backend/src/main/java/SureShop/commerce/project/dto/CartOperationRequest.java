@@ -0,0 +1,10 @@
+package SureShop.commerce.project.dto;
+
+import lombok.Data;
+
+@Data
+public class CartOperationRequest {
+    private String type; // add, update or remove
+    private Long productId;
+    private Integer quantity; // ignored for remove
+}
@@ -0,0 +1,20 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutRequestStatus {
+    private String requestId;
+    private String status; // QUEUED, PROCESSING, COMPLETED or FAILED
+    private Long orderId; // set once COMPLETED
+    private String error; // set once FAILED
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,19 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailySalesResponse {
+    private LocalDate salesDate;
+    private Long orders; // orders that are not cancelled
+    private Long units;
+    private BigDecimal revenue;
+}
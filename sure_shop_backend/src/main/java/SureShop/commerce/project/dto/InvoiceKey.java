@@ -0,0 +1,19 @@
+package SureShop.commerce.project.dto;
+
+import SureShop.commerce.project.models.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The order columns an invoice request needs before rendering: owner for access, status and version for the cache
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceKey {
+    private Long orderId;
+    private Long userId;
+    private OrderStatus status;
+    private Long version;
+}
@@ -0,0 +1,20 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// An outbox event as handed to sinks and in-process @EventListener methods
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderEvent {
+    private Long id; // increases in write order; a redelivered event keeps its id
+    private Long orderId;
+    private String type; // ORDER_PLACED, PAYMENT_CONFIRMED, ORDER_CANCELLED or ORDER_STATUS_CHANGED
+    private String payload; // JSON
+    private LocalDateTime createdAt;
+}
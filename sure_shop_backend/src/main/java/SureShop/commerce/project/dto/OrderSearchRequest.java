@@ -0,0 +1,20 @@
+package SureShop.commerce.project.dto;
+
+import SureShop.commerce.project.models.OrderStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class OrderSearchRequest {
+    private OrderStatus status;
+    private Long userId;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from; // inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to; // exclusive
+    private BigDecimal minTotal;
+    private BigDecimal maxTotal;
+    private Integer size = 50; // at most 200
+}
@@ -0,0 +1,24 @@
+package SureShop.commerce.project.dto;
+
+import SureShop.commerce.project.models.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One order row of the admin search: order columns only, no items
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryResponse {
+    private Long id;
+    private Long userId;
+    private OrderStatus status;
+    private BigDecimal totalPrice;
+    private String paymentId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
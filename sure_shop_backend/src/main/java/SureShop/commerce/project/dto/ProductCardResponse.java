@@ -0,0 +1,25 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+// Listing read model: card fields and the first image only, built by a single projection query
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductCardResponse {
+    private Long id;
+    private String title;
+    private BigDecimal price;
+    private BigDecimal discount;
+    private String image;
+    private String category;
+    private Integer stockQuantity;
+    private BigDecimal averageRating;
+    private Integer totalReviews;
+    private BigDecimal finalPrice; // Price after discount
+}
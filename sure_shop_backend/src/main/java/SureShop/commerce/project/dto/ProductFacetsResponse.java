@@ -0,0 +1,19 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacetsResponse {
+    private Long totalProducts;
+    private Long inStock;
+    private Map<String, Long> categories;
+    private Map<String, Long> priceBands; // e.g. "0-25", "500+"
+    private Map<String, Long> ratingBands; // e.g. "4-5", "0-1"
+}
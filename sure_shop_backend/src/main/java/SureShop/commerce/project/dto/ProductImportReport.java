@@ -0,0 +1,23 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportReport {
+    private long received;
+    private long imported;
+    private long rejected; // failed validation
+    private long failed; // valid but lost with a chunk that could not be committed
+    private int chunksCommitted;
+    private long durationMillis;
+    @Builder.Default
+    private List<String> errors = new ArrayList<>(); // first errors only, see ProductImportService
+}
@@ -0,0 +1,18 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Rating aggregates alone, read back after a review is applied for the in-memory views
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductRating {
+    private BigDecimal averageRating;
+    private Integer totalReviews;
+}
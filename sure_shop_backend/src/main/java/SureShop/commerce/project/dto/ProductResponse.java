@@ -1,5 +1,6 @@
 package SureShop.commerce.project.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +25,6 @@ public class ProductResponse {
     private Integer totalReviews;
     private Boolean active;
     private BigDecimal finalPrice; // Price after discount
+    @JsonIgnore
+    private Long version; // entity version the response was built from, for the ETag
 } 
\ No newline at end of file
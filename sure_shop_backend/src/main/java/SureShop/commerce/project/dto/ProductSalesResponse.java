@@ -0,0 +1,18 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSalesResponse {
+    private Long productId;
+    private Long orders; // orders that are not cancelled
+    private Long units;
+    private BigDecimal revenue;
+}
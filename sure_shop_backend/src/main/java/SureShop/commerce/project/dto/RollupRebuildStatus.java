@@ -0,0 +1,23 @@
+package SureShop.commerce.project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RollupRebuildStatus {
+    private String status; // RUNNING, COMPLETED or FAILED
+    private LocalDate from;
+    private LocalDate to;
+    private LocalDate lastDayDone; // null until the first day is rebuilt
+    private Integer daysDone;
+    private String error; // set once FAILED
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -38,34 +38,54 @@ public class Cart {
     @Builder.Default
     private Boolean active = true;
 
+    // Denormalized from items by the helpers below, so totals and the badge count need no item rows
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer totalItems = 0;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    @Builder.Default
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+
+    // Every item change also touches updatedAt or the totals above, so it bumps this; backs the cart ETag
+    @Version
+    private Long version;
+
     // Helper methods
     public void addItem(CartItem item) {
         items.add(item);
         item.setCart(this);
+        adjustTotals(item.getQuantity(), item.getTotalPrice());
         updateTimestamp();
     }
 
     public void removeItem(CartItem item) {
-        items.remove(item);
+        if (items.remove(item)) {
+            adjustTotals(-item.getQuantity(), item.getTotalPrice().negate());
+        }
         item.setCart(null);
         updateTimestamp();
     }
 
     public void clearItems() {
         items.clear();
+        totalItems = 0;
+        totalPrice = BigDecimal.ZERO.setScale(2);
         updateTimestamp();
     }
 
-    public BigDecimal getTotalPrice() {
-        return items.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Called by CartItem.updateQuantity with the change in quantity and line total
+    void adjustTotals(int itemsDelta, BigDecimal priceDelta) {
+        totalItems += itemsDelta;
+        totalPrice = totalPrice.add(priceDelta);
     }
 
-    public Integer getTotalItems() {
-        return items.stream()
+    // Full recount, for code that rewrites items directly
+    public void recalculateTotals() {
+        totalItems = items.stream()
                 .mapToInt(CartItem::getQuantity)
                 .sum();
+        totalPrice = Pricing.cartTotal(items);
     }
 
     private void updateTimestamp() {
@@ -35,13 +35,18 @@ public class CartItem {
     // Helper method to calculate total price
     public void calculateTotalPrice() {
         if (quantity != null && unitPrice != null) {
-            this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.totalPrice = Pricing.lineTotal(unitPrice, quantity);
         }
     }
 
-    // Update quantity and recalculate total
+    // Update quantity, recalculate total and carry the difference into the cart totals
     public void updateQuantity(Integer newQuantity) {
+        int oldQuantity = quantity != null ? quantity : 0;
+        BigDecimal oldTotal = totalPrice != null ? totalPrice : BigDecimal.ZERO;
         this.quantity = newQuantity;
         calculateTotalPrice();
+        if (cart != null) {
+            cart.adjustTotals(newQuantity - oldQuantity, totalPrice.subtract(oldTotal));
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,19 @@
+package SureShop.commerce.project.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Single-row counter behind the catalog listing ETags, shared by every instance; see CatalogVersionCounter
+@Entity
+@Table(name = "catalog_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogVersion {
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long version;
+}
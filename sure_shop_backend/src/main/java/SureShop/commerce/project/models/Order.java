@@ -8,7 +8,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_orders_user_created_at", columnList = "user_id, created_at"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,7 +26,8 @@ public class Order {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Lazy: pages fetch items for all their orders at once, see OrderRepository.findWithItemsByIdIn
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Builder.Default
     private List<OrderItem> items = new ArrayList<>();
 
@@ -34,9 +39,11 @@ public class Order {
     private BigDecimal totalPrice;
 
     @Column(nullable = false)
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @Column(nullable = false)
+    @Builder.Default
     private LocalDateTime updatedAt = LocalDateTime.now();
 
     @Column(nullable = false)
@@ -51,6 +58,10 @@ public class Order {
     @Column
     private String notes;
 
+    // Bumped on every change, including the reaper's bulk UPDATE; part of the invoice cache key
+    @Version
+    private Long version;
+
     // Helper method
     public void updateTimestamp() {
         this.updatedAt = LocalDateTime.now();
@@ -23,6 +23,10 @@ public class OrderItem {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // Product category at checkout, so the sales rollups subtract what they added if the product moves later
+    @Column(nullable = false)
+    private String category;
+
     @Column(nullable = false)
     private Integer quantity;
 
@@ -0,0 +1,50 @@
+package SureShop.commerce.project.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+// Price arithmetic in long cents. Prices carry two decimals and discounts are percentages with two
+// decimals, so the discount is applied in basis points and rounded half-up to the cent, which gives
+// the same results as the previous BigDecimal multiply/divide(2, HALF_UP) without the intermediate objects.
+public final class Pricing {
+
+    private Pricing() {
+    }
+
+    // Amounts with more than two decimals are rounded the way the DECIMAL(10,2) columns would store them
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long finalPriceCents(long priceCents, long discountBasisPoints) {
+        if (discountBasisPoints <= 0) {
+            return priceCents;
+        }
+        return priceCents - (priceCents * discountBasisPoints + 5_000) / 10_000;
+    }
+
+    public static BigDecimal finalPrice(BigDecimal price, BigDecimal discount) {
+        if (price == null) {
+            return null;
+        }
+        long discountBasisPoints = discount != null ? toCents(discount) : 0;
+        return fromCents(finalPriceCents(toCents(price), discountBasisPoints));
+    }
+
+    public static BigDecimal lineTotal(BigDecimal unitPrice, int quantity) {
+        return fromCents(Math.multiplyExact(toCents(unitPrice), (long) quantity));
+    }
+
+    public static BigDecimal cartTotal(List<CartItem> items) {
+        long cents = 0;
+        for (CartItem item : items) {
+            cents += toCents(item.getTotalPrice());
+        }
+        return fromCents(cents);
+    }
+}
@@ -26,11 +26,17 @@ public class Product {
     private BigDecimal price;
 
     @Column(precision = 5, scale = 2)
+    @Builder.Default
     private BigDecimal discount = BigDecimal.ZERO;
 
+    // Price after discount, kept in step with price and discount so reads never recompute it
+    @Column(precision = 10, scale = 2)
+    private BigDecimal finalPrice;
+
     @ElementCollection
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
+    @OrderColumn(name = "image_order")
     private List<String> images;
 
     @Column(nullable = false)
@@ -40,11 +46,29 @@ public class Product {
     private Integer stockQuantity;
 
     @Column(precision = 3, scale = 2)
+    @Builder.Default
     private BigDecimal averageRating = BigDecimal.ZERO;
 
     @Column
+    @Builder.Default
     private Integer totalReviews = 0;
 
+    // Running sum of active review ratings; averageRating = ratingSum / totalReviews
+    @Column(precision = 12, scale = 1)
+    @Builder.Default
+    private BigDecimal ratingSum = BigDecimal.ZERO;
+
     @Column(nullable = false)
+    @Builder.Default
     private Boolean active = true;
+
+    // Bumped on every change, including the bulk rating updates in ProductRepository; backs the product ETag
+    @Version
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    public void refreshFinalPrice() {
+        this.finalPrice = Pricing.finalPrice(price, discount);
+    }
 } 
\ No newline at end of file
@@ -31,8 +31,10 @@ public class Review {
     private String comment;
 
     @Column(nullable = false)
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @Column(nullable = false)
+    @Builder.Default
     private Boolean active = true;
 } 
\ No newline at end of file
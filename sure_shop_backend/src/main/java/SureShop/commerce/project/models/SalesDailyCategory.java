@@ -0,0 +1,47 @@
+package SureShop.commerce.project.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Sales rollup per order day and product category, maintained by SalesRollups. Slotted like SalesDaily, since a best-selling
+// product or a category is touched by many checkouts of the day; readers sum the slots.
+@Entity
+@Table(name = "sales_daily_category")
+@IdClass(SalesDailyCategory.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyCategory {
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    private String category;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private String category;
+        private Integer slot;
+    }
+}
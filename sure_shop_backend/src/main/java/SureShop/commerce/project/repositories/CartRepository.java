@@ -22,6 +22,14 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.items ci LEFT JOIN FETCH ci.product WHERE c.user.id = :userId AND c.active = true")
     Optional<Cart> findByUserIdWithItems(@Param("userId") Long userId);
     
+    // Badge count from the denormalized column, without loading the cart or its items
+    @Query("SELECT c.totalItems FROM Cart c WHERE c.user.id = :userId AND c.active = true")
+    Optional<Integer> findTotalItemsByUserId(@Param("userId") Long userId);
+    
+    // Version alone, to answer conditional GETs without loading the cart
+    @Query("SELECT c.version FROM Cart c WHERE c.user.id = :userId AND c.active = true")
+    Optional<Long> findVersionByUserId(@Param("userId") Long userId);
+    
     // Delete inactive carts (cleanup)
     void deleteByActiveFalse();
 } 
\ No newline at end of file
@@ -0,0 +1,51 @@
+package SureShop.commerce.project.repositories;
+
+import SureShop.commerce.project.models.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndEndpointAndIdempotencyKey(Long userId, String endpoint, String idempotencyKey);
+
+    // Store the response on the claimed row, in the same transaction as the work it describes.
+    // Updates nothing when the claim was taken over by another request.
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.responseBody = :responseBody, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.claimToken = :claimToken AND r.statusCode IS NULL")
+    int complete(@Param("id") Long id,
+                 @Param("claimToken") String claimToken,
+                 @Param("statusCode") Integer statusCode,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Hand a pending claim whose owner stopped answering to a new request; the old owner's complete then fails
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.claimToken = :newToken, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.claimToken = :claimToken AND r.statusCode IS NULL AND r.expiresAt < :now")
+    int takeOver(@Param("id") Long id,
+                 @Param("claimToken") String claimToken,
+                 @Param("newToken") String newToken,
+                 @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("now") LocalDateTime now);
+
+    // Free a claim after its request failed, unless another request has taken it over meanwhile
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimToken = :claimToken AND r.statusCode IS NULL")
+    int release(@Param("id") Long id, @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.statusCode IS NOT NULL AND r.expiresAt < :now")
+    int deleteExpiredResponse(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Stored responses past their TTL, and pending claims nobody has touched for a whole TTL
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now " +
+           "AND (r.statusCode IS NOT NULL OR r.createdAt < :abandonedBefore)")
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("abandonedBefore") LocalDateTime abandonedBefore);
+}
@@ -1,15 +1,112 @@
 package SureShop.commerce.project.repositories;
 
+import SureShop.commerce.project.dto.InvoiceKey;
+import SureShop.commerce.project.dto.OrderSummaryResponse;
 import SureShop.commerce.project.models.Order;
 import SureShop.commerce.project.models.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    Page<Order> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
-    List<Order> findByStatus(OrderStatus status);
-    Page<Order> findAllByOrderByCreatedAtDesc(Pageable pageable);
-}
\ No newline at end of file
+    // Admin search: summary rows newest first, filters optional. The status and user filters are served by
+    // idx_orders_status_created_at and idx_orders_user_created_at, which also give the order without a sort.
+    String SUMMARY_SELECT = "SELECT new SureShop.commerce.project.dto.OrderSummaryResponse(" +
+            "o.id, o.user.id, o.status, o.totalPrice, o.paymentId, o.createdAt, o.updatedAt) " +
+            "FROM Order o ";
+    String SEARCH_FILTERS = "(:status IS NULL OR o.status = :status) AND " +
+            "(:userId IS NULL OR o.user.id = :userId) AND " +
+            "(:fromTime IS NULL OR o.createdAt >= :fromTime) AND " +
+            "(:toTime IS NULL OR o.createdAt < :toTime) AND " +
+            "(:minTotal IS NULL OR o.totalPrice >= :minTotal) AND " +
+            "(:maxTotal IS NULL OR o.totalPrice <= :maxTotal)";
+
+    @Query(SUMMARY_SELECT + "WHERE " + SEARCH_FILTERS + " ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> searchSummaries(@Param("status") OrderStatus status,
+                                               @Param("userId") Long userId,
+                                               @Param("fromTime") LocalDateTime fromTime,
+                                               @Param("toTime") LocalDateTime toTime,
+                                               @Param("minTotal") BigDecimal minTotal,
+                                               @Param("maxTotal") BigDecimal maxTotal,
+                                               Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + SEARCH_FILTERS + " AND " +
+           "(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> searchSummariesAfter(@Param("status") OrderStatus status,
+                                                    @Param("userId") Long userId,
+                                                    @Param("fromTime") LocalDateTime fromTime,
+                                                    @Param("toTime") LocalDateTime toTime,
+                                                    @Param("minTotal") BigDecimal minTotal,
+                                                    @Param("maxTotal") BigDecimal maxTotal,
+                                                    @Param("createdAt") LocalDateTime createdAt,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
+
+    // Order pages load in two phases: these queries page over ids only, then findWithItemsByIdIn
+    // fetches the orders of the page. A fetch join in the paged query itself would be paginated in memory.
+    @Query(value = "SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = "SELECT o.id FROM Order o ORDER BY o.createdAt DESC, o.id DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<Long> findAllIds(Pageable pageable);
+
+    // Keyset pagination: first slice, then seek past (createdAt, id) of the last row, no count query
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findUserOrderIds(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND " +
+           "(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findUserOrderIdsAfter(@Param("userId") Long userId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findAllOrderIds(Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findAllOrderIdsAfter(@Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    // Second phase: the orders of one page with their items and products, in one query
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Row-locked read for status transitions that must not interleave with the pending-order reaper
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // Oldest orders first that have been in the status since before the cutoff, served by idx_orders_status_created_at
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :cutoff ORDER BY o.createdAt, o.id")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") OrderStatus status,
+                                            @Param("cutoff") LocalDateTime cutoff,
+                                            Pageable pageable);
+
+    @Query("SELECT new SureShop.commerce.project.dto.InvoiceKey(o.id, o.user.id, o.status, o.version) " +
+           "FROM Order o WHERE o.id = :id")
+    Optional<InvoiceKey> findInvoiceKey(@Param("id") Long id);
+
+    // Bulk invoices: orders created in [from, to), oldest first, served by idx_orders_created_at
+    @Query("SELECT new SureShop.commerce.project.dto.InvoiceKey(o.id, o.user.id, o.status, o.version) " +
+           "FROM Order o WHERE o.createdAt >= :fromTime AND o.createdAt < :toTime ORDER BY o.createdAt, o.id")
+    List<InvoiceKey> findInvoiceKeys(@Param("fromTime") LocalDateTime from,
+                                     @Param("toTime") LocalDateTime to,
+                                     Pageable pageable);
+}
@@ -1,16 +1,33 @@
 package SureShop.commerce.project.repositories;
 
+import SureShop.commerce.project.dto.ProductCardResponse;
+import SureShop.commerce.project.dto.ProductRating;
 import SureShop.commerce.project.models.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+    
+    // Listing projection: card columns plus the first image, no description and no images collection
+    String CARD_SELECT = "SELECT new SureShop.commerce.project.dto.ProductCardResponse(" +
+            "p.id, p.title, p.price, p.discount, " +
+            "(SELECT img FROM Product p2 JOIN p2.images img WHERE p2.id = p.id AND INDEX(img) = 0), " +
+            "p.category, p.stockQuantity, p.averageRating, p.totalReviews, p.finalPrice) " +
+            "FROM Product p ";
+    String FILTERS = "(:category IS NULL OR p.category = :category) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:minRating IS NULL OR p.averageRating >= :minRating)";
     
     // Find all active products
     Page<Product> findByActiveTrue(Pageable pageable);
@@ -20,6 +37,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "(LOWER(p.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Product> searchProducts(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.active = true AND " +
+           "(LOWER(p.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
+    List<Long> searchProductIds(@Param("searchTerm") String searchTerm);
     
     // Filter by category
     Page<Product> findByCategoryAndActiveTrue(String category, Pageable pageable);
@@ -49,6 +71,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                         @Param("searchTerm") String searchTerm,
                                         Pageable pageable);
     
+    // Active products in id order, used to (re)build in-memory indexes batch by batch
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    long countByActiveTrue();
+    
     // Find top rated products
     @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.averageRating DESC, p.totalReviews DESC")
     Page<Product> findTopRatedProducts(Pageable pageable);
@@ -56,6 +83,82 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Find products by stock availability
     Page<Product> findByStockQuantityGreaterThanAndActiveTrue(Integer minStock, Pageable pageable);
     
+    // Apply one new review to the running rating aggregates in a single atomic statement.
+    // Returns 0 when the product does not exist or is inactive.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+           "p.averageRating = ROUND((COALESCE(p.ratingSum, 0) + :rating) / (COALESCE(p.totalReviews, 0) + 1), 2), " +
+           "p.ratingSum = COALESCE(p.ratingSum, 0) + :rating, " +
+           "p.totalReviews = COALESCE(p.totalReviews, 0) + 1, " +
+           "p.version = p.version + 1 " +
+           "WHERE p.id = :productId AND p.active = true")
+    int applyReviewRating(@Param("productId") Long productId, @Param("rating") BigDecimal rating);
+    
+    // Recompute the rating aggregates of the given products from their active reviews
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+           "p.ratingSum = COALESCE((SELECT SUM(r.rating) FROM Review r WHERE r.product.id = p.id AND r.active = true), 0), " +
+           "p.totalReviews = (SELECT COUNT(r) FROM Review r WHERE r.product.id = p.id AND r.active = true), " +
+           "p.averageRating = ROUND(COALESCE((SELECT AVG(r.rating) FROM Review r WHERE r.product.id = p.id AND r.active = true), 0), 2), " +
+           "p.version = p.version + 1 " +
+           "WHERE p.id IN :productIds")
+    int rebuildRatingAggregates(@Param("productIds") Collection<Long> productIds);
+    
+    // First image of each given product as (productId, imageUrl) rows; products without images are absent
+    @Query("SELECT p.id, img FROM Product p JOIN p.images img WHERE p.id IN :productIds AND INDEX(img) = 0")
+    List<Object[]> findFirstImages(@Param("productIds") Collection<Long> productIds);
+    
+    // Rating aggregates alone, after applyReviewRating, without loading the product and its images
+    @Query("SELECT new SureShop.commerce.project.dto.ProductRating(p.averageRating, p.totalReviews) " +
+           "FROM Product p WHERE p.id = :productId")
+    Optional<ProductRating> findRatingById(@Param("productId") Long productId);
+    
+    // Version alone, to answer conditional GETs without loading the product
+    @Query("SELECT p.version FROM Product p WHERE p.id = :productId")
+    Optional<Long> findVersionById(@Param("productId") Long productId);
+    
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Card projections for listing endpoints
+    @Query(value = CARD_SELECT + "WHERE p.active = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductCardResponse> findCards(Pageable pageable);
+    
+    @Query(value = CARD_SELECT + "WHERE p.active = true AND p.category = :category",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.category = :category")
+    Page<ProductCardResponse> findCardsByCategory(@Param("category") String category, Pageable pageable);
+    
+    @Query(value = CARD_SELECT + "WHERE p.active = true ORDER BY p.averageRating DESC, p.totalReviews DESC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductCardResponse> findTopRatedCards(Pageable pageable);
+    
+    @Query(CARD_SELECT + "WHERE p.id IN :ids")
+    List<ProductCardResponse> findCardsByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query(value = CARD_SELECT + "WHERE p.active = true AND " + FILTERS + " AND " +
+           "(:searchTerm IS NULL OR (LOWER(p.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND " + FILTERS + " AND " +
+           "(:searchTerm IS NULL OR (LOWER(p.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))))")
+    Page<ProductCardResponse> findCardsWithFilters(@Param("category") String category,
+                                                   @Param("minPrice") BigDecimal minPrice,
+                                                   @Param("maxPrice") BigDecimal maxPrice,
+                                                   @Param("minRating") BigDecimal minRating,
+                                                   @Param("searchTerm") String searchTerm,
+                                                   Pageable pageable);
+    
+    // Filters applied to the ids matched by the in-memory search index
+    @Query(value = CARD_SELECT + "WHERE p.active = true AND p.id IN :ids AND " + FILTERS,
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.id IN :ids AND " + FILTERS)
+    Page<ProductCardResponse> findCardsWithFiltersByIds(@Param("ids") Collection<Long> ids,
+                                                        @Param("category") String category,
+                                                        @Param("minPrice") BigDecimal minPrice,
+                                                        @Param("maxPrice") BigDecimal maxPrice,
+                                                        @Param("minRating") BigDecimal minRating,
+                                                        Pageable pageable);
+    
     // Get all categories
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.active = true")
     List<String> findAllCategories();
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,17 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     // Find reviews by product
     Page<Review> findByProductIdAndActiveTrueOrderByCreatedAtDesc(Long productId, Pageable pageable);
     
+    // Keyset pagination: first slice, then seek past (createdAt, id) of the last row, no count query
+    List<Review> findByProductIdAndActiveTrueOrderByCreatedAtDescIdDesc(Long productId, Pageable pageable);
+    
+    @Query("SELECT r FROM Review r WHERE r.product.id = :productId AND r.active = true AND " +
+           "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findProductReviewsAfter(@Param("productId") Long productId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+    
     // Find review by user and product (to check if user already reviewed)
     Optional<Review> findByUserIdAndProductIdAndActiveTrue(Long userId, Long productId);
     
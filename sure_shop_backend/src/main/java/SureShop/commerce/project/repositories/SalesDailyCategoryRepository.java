@@ -0,0 +1,19 @@
+package SureShop.commerce.project.repositories;
+
+import SureShop.commerce.project.dto.CategorySalesResponse;
+import SureShop.commerce.project.models.SalesDailyCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesDailyCategoryRepository extends JpaRepository<SalesDailyCategory, SalesDailyCategory.Key> {
+
+    // Categories by revenue over the days, highest first
+    @Query("SELECT new SureShop.commerce.project.dto.CategorySalesResponse(s.category, SUM(s.orderCount), SUM(s.units), SUM(s.revenue)) " +
+           "FROM SalesDailyCategory s WHERE s.salesDate BETWEEN :fromDate AND :toDate " +
+           "GROUP BY s.category ORDER BY SUM(s.revenue) DESC, s.category")
+    List<CategorySalesResponse> findCategories(@Param("fromDate") LocalDate from, @Param("toDate") LocalDate to);
+}
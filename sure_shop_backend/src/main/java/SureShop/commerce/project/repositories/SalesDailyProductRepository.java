@@ -0,0 +1,20 @@
+package SureShop.commerce.project.repositories;
+
+import SureShop.commerce.project.dto.ProductSalesResponse;
+import SureShop.commerce.project.models.SalesDailyProduct;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesDailyProductRepository extends JpaRepository<SalesDailyProduct, SalesDailyProduct.Key> {
+
+    // Products by revenue over the days, highest first
+    @Query("SELECT new SureShop.commerce.project.dto.ProductSalesResponse(s.productId, SUM(s.orderCount), SUM(s.units), SUM(s.revenue)) " +
+           "FROM SalesDailyProduct s WHERE s.salesDate BETWEEN :fromDate AND :toDate " +
+           "GROUP BY s.productId ORDER BY SUM(s.revenue) DESC, s.productId")
+    List<ProductSalesResponse> findTopProducts(@Param("fromDate") LocalDate from, @Param("toDate") LocalDate to, Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package SureShop.commerce.project.repositories;
+
+import SureShop.commerce.project.dto.DailySalesResponse;
+import SureShop.commerce.project.models.SalesDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesDailyRepository extends JpaRepository<SalesDaily, SalesDaily.Key> {
+
+    // One row per day with sales, slots summed
+    @Query("SELECT new SureShop.commerce.project.dto.DailySalesResponse(s.salesDate, SUM(s.orderCount), SUM(s.units), SUM(s.revenue)) " +
+           "FROM SalesDaily s WHERE s.salesDate BETWEEN :fromDate AND :toDate GROUP BY s.salesDate ORDER BY s.salesDate")
+    List<DailySalesResponse> findDaily(@Param("fromDate") LocalDate from, @Param("toDate") LocalDate to);
+}
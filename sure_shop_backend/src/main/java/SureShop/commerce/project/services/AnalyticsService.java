@@ -0,0 +1,166 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CategorySalesResponse;
+import SureShop.commerce.project.dto.DailySalesResponse;
+import SureShop.commerce.project.dto.ProductSalesResponse;
+import SureShop.commerce.project.dto.RollupRebuildStatus;
+import SureShop.commerce.project.repositories.SalesDailyCategoryRepository;
+import SureShop.commerce.project.repositories.SalesDailyProductRepository;
+import SureShop.commerce.project.repositories.SalesDailyRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Sales dashboards, read from the rollup tables only, and the job that rebuilds a range of rollup days.
+// A rebuild interrupted by shutdown stops after the day in progress and is marked FAILED; lastDayDone says where to resume.
+@Service
+public class AnalyticsService {
+
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    private final SalesDailyRepository salesDailyRepository;
+    private final SalesDailyProductRepository salesDailyProductRepository;
+    private final SalesDailyCategoryRepository salesDailyCategoryRepository;
+    private final SalesRollups salesRollups;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor rebuilder;
+    private final long maxRebuildDays;
+
+    private final AtomicReference<RollupRebuildStatus> rebuild = new AtomicReference<>();
+    private volatile boolean stopping = false;
+
+    @Autowired
+    public AnalyticsService(SalesDailyRepository salesDailyRepository,
+                            SalesDailyProductRepository salesDailyProductRepository,
+                            SalesDailyCategoryRepository salesDailyCategoryRepository,
+                            SalesRollups salesRollups,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("rollupRebuildExecutor") TaskExecutor rebuilder,
+                            @Value("${analytics.rebuild.max-days:366}") long maxRebuildDays) {
+        this.salesDailyRepository = salesDailyRepository;
+        this.salesDailyProductRepository = salesDailyProductRepository;
+        this.salesDailyCategoryRepository = salesDailyCategoryRepository;
+        this.salesRollups = salesRollups;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuilder = rebuilder;
+        this.maxRebuildDays = maxRebuildDays;
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailySalesResponse> getDailySales(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return salesDailyRepository.findDaily(from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSalesResponse> getTopProducts(LocalDate from, LocalDate to, int limit) {
+        checkRange(from, to);
+        return salesDailyProductRepository.findTopProducts(from, to,
+                PageRequest.of(0, Math.min(Math.max(limit, 1), MAX_TOP_PRODUCTS)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategorySalesResponse> getCategorySales(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return salesDailyCategoryRepository.findCategories(from, to);
+    }
+
+    // Start rebuilding the days from..to (inclusive) in the background, one transaction per day.
+    // Throws RuntimeException for an invalid range and RebuildRunningException while another rebuild runs.
+    public RollupRebuildStatus startRebuild(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        if (ChronoUnit.DAYS.between(from, to) >= maxRebuildDays) {
+            throw new RuntimeException("Rebuild range exceeds " + maxRebuildDays + " days");
+        }
+        RollupRebuildStatus current = rebuild.get();
+        RollupRebuildStatus started = RollupRebuildStatus.builder()
+                .status("RUNNING")
+                .from(from)
+                .to(to)
+                .daysDone(0)
+                .startedAt(LocalDateTime.now())
+                .build();
+        if ((current != null && "RUNNING".equals(current.getStatus())) || !rebuild.compareAndSet(current, started)) {
+            throw new RebuildRunningException();
+        }
+        try {
+            rebuilder.execute(() -> runRebuild(from, to));
+        } catch (TaskRejectedException e) {
+            // shutting down
+            rebuild.set(progress("FAILED", 0, null, "Shutting down"));
+            throw new RuntimeException("Shutting down");
+        }
+        return started;
+    }
+
+    public Optional<RollupRebuildStatus> getRebuildStatus() {
+        return Optional.ofNullable(rebuild.get());
+    }
+
+    private void runRebuild(LocalDate from, LocalDate to) {
+        int daysDone = 0;
+        LocalDate lastDayDone = null;
+        try {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                if (stopping) {
+                    rebuild.set(progress("FAILED", daysDone, lastDayDone, "Stopped by shutdown"));
+                    return;
+                }
+                LocalDate rebuiltDay = day;
+                transactionTemplate.executeWithoutResult(status -> salesRollups.rebuildDay(rebuiltDay));
+                daysDone++;
+                lastDayDone = day;
+                rebuild.set(progress("RUNNING", daysDone, lastDayDone, null));
+            }
+            rebuild.set(progress("COMPLETED", daysDone, lastDayDone, null));
+        } catch (RuntimeException e) {
+            rebuild.set(progress("FAILED", daysDone, lastDayDone, e.getMessage()));
+        }
+    }
+
+    private RollupRebuildStatus progress(String status, int daysDone, LocalDate lastDayDone, String error) {
+        RollupRebuildStatus current = rebuild.get();
+        return RollupRebuildStatus.builder()
+                .status(status)
+                .from(current.getFrom())
+                .to(current.getTo())
+                .lastDayDone(lastDayDone)
+                .daysDone(daysDone)
+                .error(error)
+                .startedAt(current.getStartedAt())
+                .finishedAt("RUNNING".equals(status) ? null : LocalDateTime.now())
+                .build();
+    }
+
+    private void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new RuntimeException("Invalid date range");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+    }
+
+    public static class RebuildRunningException extends RuntimeException {
+        public RebuildRunningException() {
+            super("A rebuild is already running");
+        }
+    }
+}
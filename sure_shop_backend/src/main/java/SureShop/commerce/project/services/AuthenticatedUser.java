@@ -0,0 +1,37 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.User;
+import lombok.Getter;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Request principal built from verified JWT claims, so services get the caller's id without loading the User
+@Getter
+public class AuthenticatedUser implements AuthenticatedPrincipal {
+    private final Long id;
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, Collection<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(),
+                user.getRoles().stream().map(Enum::name).collect(Collectors.toList()));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -1,12 +1,14 @@
 package SureShop.commerce.project.services;
 
+import SureShop.commerce.project.dto.CartBatchRequest;
 import SureShop.commerce.project.dto.CartItemRequest;
 import SureShop.commerce.project.dto.CartItemResponse;
+import SureShop.commerce.project.dto.CartOperationRequest;
 import SureShop.commerce.project.dto.CartResponse;
+import SureShop.commerce.project.dto.ProductResponse;
 import SureShop.commerce.project.models.Cart;
 import SureShop.commerce.project.models.CartItem;
 import SureShop.commerce.project.models.Product;
-import SureShop.commerce.project.models.User;
 import SureShop.commerce.project.repositories.CartItemRepository;
 import SureShop.commerce.project.repositories.CartRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,9 +16,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,36 +33,38 @@ public class CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
     private final UserService userService;
+    private final CartStore cartStore;
 
     @Autowired
     public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, 
-                      ProductService productService, UserService userService) {
+                      ProductService productService, UserService userService, CartStore cartStore) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productService = productService;
         this.userService = userService;
+        this.cartStore = cartStore;
     }
 
     // Get user's cart
-    public CartResponse getUserCart(String username) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Cart cart = cartRepository.findByUserIdWithItems(user.getId())
-                .orElseGet(() -> createNewCart(user));
+    public CartResponse getUserCart(Long userId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.read(userId, this::convertToCartResponse);
+        }
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createNewCart(userId));
         
         return convertToCartResponse(cart);
     }
 
     // Add item to cart
-    public CartResponse addItemToCart(String username, CartItemRequest request) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
+    public CartResponse addItemToCart(Long userId, CartItemRequest request) {
+        if (cartStore.isEnabled()) {
+            return addItemInMemory(userId, request);
+        }
         Product product = productService.getProductEntity(request.getProductId());
         validateProduct(product);
         
-        Cart cart = getOrCreateCart(user);
+        Cart cart = getOrCreateCart(userId);
         CartItem existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), request.getProductId())
                 .orElse(null);
         
@@ -79,11 +87,11 @@ public class CartService {
     }
 
     // Update cart item quantity
-    public CartResponse updateCartItem(String username, Long productId, CartItemRequest request) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Cart cart = cartRepository.findByUserIdAndActiveTrue(user.getId())
+    public CartResponse updateCartItem(Long userId, Long productId, CartItemRequest request) {
+        if (cartStore.isEnabled()) {
+            return updateItemInMemory(userId, productId, request);
+        }
+        Cart cart = cartRepository.findByUserIdAndActiveTrue(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         CartItem cartItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
@@ -99,11 +107,16 @@ public class CartService {
     }
 
     // Remove item from cart
-    public CartResponse removeItemFromCart(String username, Long productId) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Cart cart = cartRepository.findByUserIdAndActiveTrue(user.getId())
+    public CartResponse removeItemFromCart(Long userId, Long productId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.update(userId, cart -> {
+                if (cart.lines.remove(productId) == null) {
+                    throw new RuntimeException("Cart item not found");
+                }
+                return convertToCartResponse(cart);
+            });
+        }
+        Cart cart = cartRepository.findByUserIdAndActiveTrue(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         CartItem cartItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
@@ -117,11 +130,14 @@ public class CartService {
     }
 
     // Clear cart
-    public CartResponse clearCart(String username) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Cart cart = cartRepository.findByUserIdAndActiveTrue(user.getId())
+    public CartResponse clearCart(Long userId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.update(userId, cart -> {
+                cart.lines.clear();
+                return convertToCartResponse(cart);
+            });
+        }
+        Cart cart = cartRepository.findByUserIdAndActiveTrue(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         
         cart.clearItems();
@@ -131,31 +147,189 @@ public class CartService {
         return convertToCartResponse(cart);
     }
 
-    // Get cart item count
-    public Integer getCartItemCount(String username) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    // Apply an ordered list of add/update/remove operations in one transaction.
+    // Products are loaded with one IN query and checked once each against the resulting quantities.
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        List<CartOperationRequest> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        Set<Long> productIds = operations.stream()
+                .filter(operation -> !"remove".equalsIgnoreCase(operation.getType()))
+                .map(CartOperationRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productService.getProductEntities(productIds);
+        
+        if (cartStore.isEnabled()) {
+            return cartStore.update(userId, cart -> {
+                Map<Long, Integer> current = new LinkedHashMap<>();
+                cart.lines.forEach((productId, line) -> current.put(productId, line.quantity));
+                Map<Long, Integer> target = resolveBatch(current, operations, products);
+                
+                cart.lines.keySet().retainAll(target.keySet());
+                target.forEach((productId, quantity) -> {
+                    CartStore.Line line = cart.lines.get(productId);
+                    if (line != null) {
+                        line.quantity = quantity;
+                    } else {
+                        Product product = products.get(productId);
+                        String image = product.getImages() != null && !product.getImages().isEmpty()
+                                ? product.getImages().get(0) : null;
+                        cart.lines.put(productId, new CartStore.Line(productId, product.getTitle(), image,
+                                product.getDiscount(), product.getFinalPrice(), quantity));
+                    }
+                });
+                return convertToCartResponse(cart);
+            });
+        }
+        
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createNewCart(userId));
+        Map<Long, Integer> current = new LinkedHashMap<>();
+        for (CartItem item : cart.getItems()) {
+            current.put(item.getProduct().getId(), item.getQuantity());
+        }
+        Map<Long, Integer> target = resolveBatch(current, operations, products);
         
-        return cartRepository.findByUserIdAndActiveTrue(user.getId())
-                .map(cart -> cart.getTotalItems())
+        for (CartItem item : new ArrayList<>(cart.getItems())) {
+            Integer quantity = target.get(item.getProduct().getId());
+            if (quantity == null) {
+                cart.removeItem(item);
+                cartItemRepository.delete(item);
+            } else if (!quantity.equals(item.getQuantity())) {
+                item.updateQuantity(quantity);
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : target.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                CartItem newItem = createCartItem(cart, products.get(entry.getKey()), entry.getValue());
+                cart.addItem(newItem);
+                cartItemRepository.save(newItem);
+            }
+        }
+        
+        cartRepository.save(cart);
+        return convertToCartResponse(cart);
+    }
+
+    // Get cart item count: one scalar query, or the in-memory copy in write-behind mode
+    @Transactional(readOnly = true)
+    public Integer getCartItemCount(Long userId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.read(userId, CartStore.CartState::getTotalItems);
+        }
+        return cartRepository.findTotalItemsByUserId(userId)
                 .orElse(0);
     }
 
+    // Version for a conditional GET without loading the cart; empty when the user has no cart yet
+    @Transactional(readOnly = true)
+    public Optional<String> getCartVersion(Long userId) {
+        if (cartStore.isEnabled()) {
+            return Optional.of(cartStore.read(userId, CartStore.CartState::getVersion));
+        }
+        return cartRepository.findVersionByUserId(userId)
+                .map(String::valueOf);
+    }
+
+    // In-memory cart mode: product checks come from the product cache and the cart is written behind
+    private CartResponse addItemInMemory(Long userId, CartItemRequest request) {
+        ProductResponse product = productService.getProduct(request.getProductId());
+        validateProduct(product.getActive(), product.getStockQuantity());
+        
+        return cartStore.update(userId, cart -> {
+            CartStore.Line line = cart.lines.get(product.getId());
+            int newQuantity = line != null ? line.quantity + request.getQuantity() : request.getQuantity();
+            validateQuantity(newQuantity, product.getStockQuantity());
+            if (line != null) {
+                line.quantity = newQuantity;
+            } else {
+                String image = product.getImages() != null && !product.getImages().isEmpty()
+                        ? product.getImages().get(0) : null;
+                cart.lines.put(product.getId(), new CartStore.Line(product.getId(), product.getTitle(), image,
+                        product.getDiscount(), product.getFinalPrice(), newQuantity));
+            }
+            return convertToCartResponse(cart);
+        });
+    }
+
+    private CartResponse updateItemInMemory(Long userId, Long productId, CartItemRequest request) {
+        ProductResponse product = productService.getProduct(productId);
+        
+        return cartStore.update(userId, cart -> {
+            CartStore.Line line = cart.lines.get(productId);
+            if (line == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            validateQuantity(request.getQuantity(), product.getStockQuantity());
+            line.quantity = request.getQuantity();
+            return convertToCartResponse(cart);
+        });
+    }
+
+    // Replay the operations on a copy of the current quantities, then check each changed product once
+    private Map<Long, Integer> resolveBatch(Map<Long, Integer> current, List<CartOperationRequest> operations,
+                                            Map<Long, Product> products) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>(current);
+        for (CartOperationRequest operation : operations) {
+            Long productId = operation.getProductId();
+            if (productId == null || operation.getType() == null) {
+                throw new RuntimeException("Invalid cart operation");
+            }
+            switch (operation.getType().toLowerCase()) {
+                case "add" -> {
+                    if (!products.containsKey(productId)) {
+                        throw new RuntimeException("Product not found");
+                    }
+                    quantities.merge(productId, requirePositive(operation.getQuantity()), Integer::sum);
+                }
+                case "update" -> {
+                    if (!quantities.containsKey(productId)) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                    quantities.put(productId, requirePositive(operation.getQuantity()));
+                }
+                case "remove" -> {
+                    if (quantities.remove(productId) == null) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                }
+                default -> throw new RuntimeException("Unknown cart operation: " + operation.getType());
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue().equals(current.get(entry.getKey()))) {
+                continue;
+            }
+            Product product = products.get(entry.getKey());
+            if (!current.containsKey(entry.getKey())) {
+                validateProduct(product);
+            }
+            validateQuantity(entry.getValue(), product.getStockQuantity());
+        }
+        return quantities;
+    }
+
+    private int requirePositive(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
+        return quantity;
+    }
+
     // Helper methods
-    private Cart getOrCreateCart(User user) {
-        return cartRepository.findByUserIdAndActiveTrue(user.getId())
-                .orElseGet(() -> createNewCart(user));
+    private Cart getOrCreateCart(Long userId) {
+        return cartRepository.findByUserIdAndActiveTrue(userId)
+                .orElseGet(() -> createNewCart(userId));
     }
 
-    private Cart createNewCart(User user) {
+    private Cart createNewCart(Long userId) {
         Cart cart = Cart.builder()
-                .user(user)
+                .user(userService.getReference(userId))
                 .build();
         return cartRepository.save(cart);
     }
 
     private CartItem createCartItem(Cart cart, Product product, Integer quantity) {
-        BigDecimal unitPrice = calculateFinalPrice(product);
+        BigDecimal unitPrice = product.getFinalPrice();
         
         CartItem cartItem = CartItem.builder()
                 .cart(cart)
@@ -168,22 +342,15 @@ public class CartService {
         return cartItem;
     }
 
-    private BigDecimal calculateFinalPrice(Product product) {
-        BigDecimal finalPrice = product.getPrice();
-        if (product.getDiscount() != null && product.getDiscount().compareTo(BigDecimal.ZERO) > 0) {
-            finalPrice = product.getPrice().subtract(
-                    product.getPrice().multiply(product.getDiscount())
-                            .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP)
-            );
-        }
-        return finalPrice;
+    private void validateProduct(Product product) {
+        validateProduct(product.getActive(), product.getStockQuantity());
     }
 
-    private void validateProduct(Product product) {
-        if (!product.getActive()) {
+    private void validateProduct(Boolean active, Integer stockQuantity) {
+        if (!active) {
             throw new RuntimeException("Product is not available");
         }
-        if (product.getStockQuantity() <= 0) {
+        if (stockQuantity <= 0) {
             throw new RuntimeException("Product is out of stock");
         }
     }
@@ -210,6 +377,34 @@ public class CartService {
                 .totalPrice(cart.getTotalPrice())
                 .createdAt(cart.getCreatedAt())
                 .updatedAt(cart.getUpdatedAt())
+                .version(String.valueOf(cart.getVersion()))
+                .build();
+    }
+
+    private CartResponse convertToCartResponse(CartStore.CartState cart) {
+        List<CartItemResponse> itemResponses = cart.lines.values().stream()
+                .map(line -> CartItemResponse.builder()
+                        .id(line.itemId)
+                        .productId(line.productId)
+                        .productTitle(line.title)
+                        .productImage(line.image)
+                        .quantity(line.quantity)
+                        .unitPrice(line.unitPrice)
+                        .totalPrice(line.getTotalPrice())
+                        .discount(line.discount)
+                        .finalUnitPrice(line.unitPrice)
+                        .build())
+                .collect(Collectors.toList());
+        
+        return CartResponse.builder()
+                .id(cart.cartId)
+                .userId(cart.userId)
+                .items(itemResponses)
+                .totalItems(cart.getTotalItems())
+                .totalPrice(cart.getTotalPrice())
+                .createdAt(cart.createdAt)
+                .updatedAt(cart.updatedAt)
+                .version(cart.getVersion())
                 .build();
     }
 
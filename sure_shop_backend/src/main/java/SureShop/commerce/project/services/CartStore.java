@@ -0,0 +1,391 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Cart;
+import SureShop.commerce.project.models.CartItem;
+import SureShop.commerce.project.models.Pricing;
+import SureShop.commerce.project.repositories.CartItemRepository;
+import SureShop.commerce.project.repositories.CartRepository;
+import SureShop.commerce.project.repositories.ProductRepository;
+import SureShop.commerce.project.repositories.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Optional write-behind store for active carts, enabled with cart.store.mode=memory.
+// Mutations apply to an in-memory copy keyed by user id and mark it dirty; a scheduled job writes
+// dirty carts to carts/cart_items in batches every flush interval, so a crash loses at most one interval
+// of cart changes. Checkout writes the user's cart through first (see flushForCheckout).
+@Service
+public class CartStore {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int flushBatchSize;
+    private final long idleMillis;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Every load starts a new generation, so versions of a dropped and reloaded cart never repeat
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong generations = new AtomicLong();
+    // One flush at a time: the scheduled one and the last one on shutdown
+    private final Object flushLock = new Object();
+
+    @Autowired
+    public CartStore(CartRepository cartRepository,
+                     CartItemRepository cartItemRepository,
+                     UserRepository userRepository,
+                     ProductRepository productRepository,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${cart.store.mode:database}") String mode,
+                     @Value("${cart.store.flush-batch-size:200}") int flushBatchSize,
+                     @Value("${cart.store.idle-seconds:1800}") long idleSeconds) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = "memory".equalsIgnoreCase(mode);
+        this.flushBatchSize = flushBatchSize;
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:1000}",
+               initialDelayString = "${cart.store.flush-interval-ms:1000}")
+    public void flushOnSchedule() {
+        if (enabled) {
+            flushDirty();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Apply a mutation to the user's cart under its lock and queue the cart for write-behind.
+    // A mutation that throws must leave the cart unchanged.
+    public <T> T update(Long userId, Function<CartState, T> mutation) {
+        while (true) {
+            CartState cart = state(userId);
+            synchronized (cart) {
+                awaitCheckout(cart);
+                if (cart.evicted) {
+                    continue;
+                }
+                T result = mutation.apply(cart);
+                cart.version++;
+                cart.updatedAt = LocalDateTime.now();
+                cart.lastAccess = System.currentTimeMillis();
+                dirty.add(userId);
+                return result;
+            }
+        }
+    }
+
+    public <T> T read(Long userId, Function<CartState, T> reader) {
+        while (true) {
+            CartState cart = state(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return reader.apply(cart);
+            }
+        }
+    }
+
+    // Write the user's cart through in the caller's (checkout) transaction before it is read from the database.
+    // Until that transaction completes the cart is held: mutations wait for it and the worker skips it, so nothing
+    // changes between the write-through and the commit. Once committed the checked-out cart is empty, so the
+    // in-memory copy is dropped and waiting mutations reload it; on rollback it is queued for the worker again.
+    public void flushForCheckout(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        CartState state = carts.get(userId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            awaitCheckout(state);
+            if (state.evicted) {
+                // a concurrent checkout of this cart committed; the database copy is current
+                return;
+            }
+            write(userId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeCheckout(userId, state, status == STATUS_COMMITTED);
+                }
+            });
+            state.checkingOut = true;
+        }
+    }
+
+    private void completeCheckout(Long userId, CartState state, boolean committed) {
+        synchronized (state) {
+            state.checkingOut = false;
+            if (committed) {
+                state.evicted = true;
+                carts.remove(userId, state);
+                dirty.remove(userId);
+            } else {
+                dirty.add(userId);
+            }
+            state.notifyAll();
+        }
+    }
+
+    // Called holding the cart's monitor
+    private void awaitCheckout(CartState cart) {
+        while (cart.checkingOut) {
+            try {
+                cart.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while the cart is being checked out");
+            }
+        }
+    }
+
+    private CartState state(Long userId) {
+        CartState cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        CartState loaded = transactionTemplate.execute(status -> load(userId));
+        CartState existing = carts.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private CartState load(Long userId) {
+        CartState state = new CartState(userId, Long.toString(epoch, 36) + "." + generations.incrementAndGet());
+        cartRepository.findByUserIdWithItems(userId).ifPresent(cart -> {
+            state.cartId = cart.getId();
+            state.createdAt = cart.getCreatedAt();
+            state.updatedAt = cart.getUpdatedAt();
+            for (CartItem item : cart.getItems()) {
+                List<String> images = item.getProduct().getImages();
+                Line line = new Line(item.getProduct().getId(), item.getProduct().getTitle(),
+                        images != null && !images.isEmpty() ? images.get(0) : null,
+                        item.getProduct().getDiscount(), item.getUnitPrice(), item.getQuantity());
+                line.itemId = item.getId();
+                state.lines.put(line.productId, line);
+            }
+        });
+        return state;
+    }
+
+    private void flushDirty() {
+        synchronized (flushLock) {
+            flushDirtyCarts();
+        }
+    }
+
+    private void flushDirtyCarts() {
+        try {
+            List<Long> batch = new ArrayList<>(flushBatchSize);
+            for (Long userId : dirty) {
+                batch.add(userId);
+                if (batch.size() == flushBatchSize) {
+                    flushBatch(batch);
+                    batch = new ArrayList<>(flushBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushBatch(batch);
+            }
+            evictIdle();
+        } catch (RuntimeException e) {
+            // keep the schedule alive; unwritten carts stay dirty
+        }
+    }
+
+    // One transaction per batch; on failure every cart of the batch is retried on the next run
+    private void flushBatch(List<Long> userIds) {
+        List<Runnable> assignIds = new ArrayList<>(userIds.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Long userId : userIds) {
+                    assignIds.add(write(userId));
+                }
+            });
+            assignIds.forEach(Runnable::run);
+        } catch (RuntimeException e) {
+            dirty.addAll(userIds);
+        }
+    }
+
+    // Replace the stored cart with the in-memory copy; returns the id assignment to run once committed
+    private Runnable write(Long userId) {
+        CartState state = carts.get(userId);
+        if (state == null) {
+            return () -> { };
+        }
+        synchronized (state) {
+            if (state.checkingOut) {
+                // already written by the checkout holding it
+                return () -> { };
+            }
+            dirty.remove(userId);
+            Cart cart = cartRepository.findByUserIdWithItems(userId)
+                    .or(() -> cartRepository.findByUserId(userId))
+                    .orElseGet(() -> cartRepository.save(Cart.builder()
+                            .user(userRepository.getReferenceById(userId))
+                            .createdAt(state.createdAt)
+                            .build()));
+            cart.setActive(true);
+
+            Map<Long, CartItem> stored = new HashMap<>();
+            for (CartItem item : new ArrayList<>(cart.getItems())) {
+                if (state.lines.containsKey(item.getProduct().getId())) {
+                    stored.put(item.getProduct().getId(), item);
+                } else {
+                    cart.removeItem(item);
+                }
+            }
+            Map<Line, CartItem> inserted = new IdentityHashMap<>();
+            for (Line line : state.lines.values()) {
+                CartItem item = stored.get(line.productId);
+                if (item == null) {
+                    item = CartItem.builder()
+                            .cart(cart)
+                            .product(productRepository.getReferenceById(line.productId))
+                            .quantity(line.quantity)
+                            .unitPrice(line.unitPrice)
+                            .build();
+                    item.calculateTotalPrice();
+                    cart.addItem(item);
+                    inserted.put(line, cartItemRepository.save(item));
+                } else {
+                    item.setUnitPrice(line.unitPrice);
+                    item.updateQuantity(line.quantity);
+                }
+            }
+            cart.recalculateTotals();
+            cart.setUpdatedAt(state.updatedAt);
+            cartRepository.save(cart);
+
+            Long cartId = cart.getId();
+            return () -> {
+                synchronized (state) {
+                    state.cartId = cartId;
+                    inserted.forEach((line, item) -> line.itemId = item.getId());
+                }
+            };
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        Iterator<Map.Entry<Long, CartState>> entries = carts.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, CartState> entry = entries.next();
+            CartState cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.lastAccess < cutoff && !cart.checkingOut && !dirty.contains(entry.getKey())) {
+                    cart.evicted = true;
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            flushDirty();
+        }
+    }
+
+    // In-memory copy of one user's active cart; guarded by its own monitor
+    public static class CartState {
+        final Long userId;
+        final String generation;
+        long version;
+        Long cartId;
+        LocalDateTime createdAt = LocalDateTime.now();
+        LocalDateTime updatedAt = LocalDateTime.now();
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        long lastAccess = System.currentTimeMillis();
+        boolean evicted;
+        boolean checkingOut;
+
+        CartState(Long userId, String generation) {
+            this.userId = userId;
+            this.generation = generation;
+        }
+
+        // Changes on every mutation; independent of the database version, which moves once per flush
+        String getVersion() {
+            return generation + "." + version;
+        }
+
+        BigDecimal getTotalPrice() {
+            long cents = 0;
+            for (Line line : lines.values()) {
+                cents += Pricing.toCents(line.getTotalPrice());
+            }
+            return Pricing.fromCents(cents);
+        }
+
+        int getTotalItems() {
+            int total = 0;
+            for (Line line : lines.values()) {
+                total += line.quantity;
+            }
+            return total;
+        }
+    }
+
+    // One cart line with the product fields a cart response shows, captured when the item was added
+    public static class Line {
+        final Long productId;
+        final String title;
+        final String image;
+        final BigDecimal discount;
+        final BigDecimal unitPrice;
+        int quantity;
+        Long itemId;
+
+        Line(Long productId, String title, String image, BigDecimal discount, BigDecimal unitPrice, int quantity) {
+            this.productId = productId;
+            this.title = title;
+            this.image = image;
+            this.discount = discount;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+        }
+
+        BigDecimal getTotalPrice() {
+            return Pricing.lineTotal(unitPrice, quantity);
+        }
+    }
+}
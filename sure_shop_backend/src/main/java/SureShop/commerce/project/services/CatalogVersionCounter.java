@@ -0,0 +1,102 @@
+package SureShop.commerce.project.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Catalog version kept in the database so every instance tags listings alike. Product write paths bump it once
+// per committed transaction, as its own statement after the commit, so no transaction holds the row; stock changes
+// do not bump it, so listing ETags do not cover stock counts. The first bump seeds it with the current time, so a
+// recreated table cannot hand out a version an earlier catalog was tagged with. A bump that fails is retried
+// before the next read.
+// Reads are served from memory for product.catalog-version.refresh-millis, so listing GETs do not query the row
+// each time; a bump on this instance is seen by its next read, one on another instance within that interval.
+@Component
+public class CatalogVersionCounter {
+
+    private static final String BUMP = "INSERT INTO catalog_version (id, version) VALUES (1, ?) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1";
+    private static final String READ = "SELECT version FROM catalog_version WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshMillis;
+    private volatile boolean pending = false;
+
+    // Bumps made by this instance; a read taken before the latest of them is not reused
+    private final AtomicLong localBumps = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0L, 0L, -1L);
+
+    @Autowired
+    public CatalogVersionCounter(JdbcTemplate jdbcTemplate,
+                                 @Value("${product.catalog-version.refresh-millis:1000}") long refreshMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshMillis = refreshMillis;
+    }
+
+    // Bump once when the current transaction commits, however many products it changed
+    public void bumpAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogVersionCounter.this);
+                if (status == STATUS_COMMITTED) {
+                    bump();
+                }
+            }
+        });
+    }
+
+    public void bump() {
+        pending = true;
+        tryBump();
+    }
+
+    public long current() {
+        if (pending) {
+            tryBump();
+        }
+        long bumps = localBumps.get();
+        long now = System.currentTimeMillis();
+        Snapshot last = snapshot;
+        if (last.bumps() == bumps && now - last.readAt() < refreshMillis) {
+            return last.version();
+        }
+        List<Long> version = jdbcTemplate.queryForList(READ, Long.class);
+        if (version.isEmpty()) {
+            bump();
+            bumps = localBumps.get();
+            version = jdbcTemplate.queryForList(READ, Long.class);
+        }
+        long current = version.isEmpty() ? 0L : version.get(0);
+        snapshot = new Snapshot(current, now, bumps);
+        return current;
+    }
+
+    private void tryBump() {
+        try {
+            pending = false;
+            jdbcTemplate.update(BUMP, System.currentTimeMillis());
+            localBumps.incrementAndGet();
+        } catch (RuntimeException e) {
+            // keep it pending; the change still needs a new version
+            pending = true;
+        }
+    }
+
+    private record Snapshot(long version, long readAt, long bumps) {
+    }
+}
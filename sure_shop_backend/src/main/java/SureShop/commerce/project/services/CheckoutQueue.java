@@ -0,0 +1,155 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CheckoutRequestStatus;
+import SureShop.commerce.project.dto.OrderRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous checkout: requests are validated on the caller's thread, then run by the checkoutExecutor pool
+// from its bounded queue. A full queue is rejected immediately instead of holding request threads and connections.
+// On shutdown the pool lets queued checkouts finish; their clients are polling for the result.
+// Request status is kept in memory for the retention period after it finishes.
+@Service
+public class CheckoutQueue {
+
+    public enum State { QUEUED, PROCESSING, COMPLETED, FAILED }
+
+    private final OrderService orderService;
+    private final CartService cartService;
+    private final long retentionMillis;
+    private final TaskExecutor workers;
+
+    private final Map<String, Entry> requests = new ConcurrentHashMap<>();
+    // Unfinished request per user, so a repeated submit returns the one already queued
+    private final Map<Long, String> pendingByUser = new ConcurrentHashMap<>();
+    // Finished requests in completion order, dropped from the front once past retention
+    private final ConcurrentLinkedQueue<Entry> finished = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public CheckoutQueue(OrderService orderService,
+                         CartService cartService,
+                         @Qualifier("checkoutExecutor") TaskExecutor workers,
+                         @Value("${checkout.async.retention-seconds:3600}") long retentionSeconds) {
+        this.orderService = orderService;
+        this.cartService = cartService;
+        this.workers = workers;
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+    }
+
+    // Queue a checkout and return its status. Throws RuntimeException for an invalid request
+    // and QueueFullException when the queue has no room.
+    public CheckoutRequestStatus submit(Long userId, OrderRequest request) {
+        if (request.getShippingAddress() == null || request.getShippingAddress().isBlank()) {
+            throw new RuntimeException("Shipping address is required");
+        }
+        if (cartService.getCartItemCount(userId) == 0) {
+            throw new RuntimeException("Cart is empty");
+        }
+        expireFinished();
+
+        Entry entry = new Entry(UUID.randomUUID().toString(), userId);
+        requests.put(entry.requestId, entry);
+        String pending = pendingByUser.putIfAbsent(userId, entry.requestId);
+        if (pending != null) {
+            requests.remove(entry.requestId);
+            Entry existing = requests.get(pending);
+            if (existing == null) {
+                throw new RuntimeException("Checkout already in progress");
+            }
+            return existing.toStatus();
+        }
+        try {
+            workers.execute(() -> process(entry, request));
+        } catch (TaskRejectedException e) {
+            requests.remove(entry.requestId);
+            pendingByUser.remove(userId, entry.requestId);
+            throw new QueueFullException();
+        }
+        return entry.toStatus();
+    }
+
+    // Status of one of the user's requests; empty for unknown, expired or other users' requests
+    public Optional<CheckoutRequestStatus> getStatus(Long userId, String requestId) {
+        Entry entry = requests.get(requestId);
+        if (entry == null || !entry.userId.equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.toStatus());
+    }
+
+    private void process(Entry entry, OrderRequest request) {
+        entry.update(State.PROCESSING, null, null);
+        try {
+            Long orderId = orderService.checkout(entry.userId, request).getId();
+            entry.update(State.COMPLETED, orderId, null);
+        } catch (RuntimeException e) {
+            entry.update(State.FAILED, null, e.getMessage());
+        } finally {
+            entry.finishedAt = System.currentTimeMillis();
+            pendingByUser.remove(entry.userId, entry.requestId);
+            finished.add(entry);
+        }
+    }
+
+    private void expireFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        Entry oldest;
+        while ((oldest = finished.peek()) != null && oldest.finishedAt < cutoff) {
+            if (finished.remove(oldest)) {
+                requests.remove(oldest.requestId);
+            }
+        }
+    }
+
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException() {
+            super("Checkout queue is full");
+        }
+    }
+
+    private static class Entry {
+        final String requestId;
+        final Long userId;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        State state = State.QUEUED;
+        Long orderId;
+        String error;
+        LocalDateTime updatedAt = createdAt;
+        volatile long finishedAt;
+
+        Entry(String requestId, Long userId) {
+            this.requestId = requestId;
+            this.userId = userId;
+        }
+
+        synchronized void update(State state, Long orderId, String error) {
+            this.state = state;
+            this.orderId = orderId;
+            this.error = error;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        synchronized CheckoutRequestStatus toStatus() {
+            return CheckoutRequestStatus.builder()
+                    .requestId(requestId)
+                    .status(state.name())
+                    .orderId(orderId)
+                    .error(error)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Encodes the last row's sort key and id into an opaque "after" token for keyset pagination. A listing with a choice
+// of sort also encodes the sort it was issued for, and a token brought to a different sort is rejected.
+final class CursorCodec {
+
+    private static final char SEPARATOR = '\n';
+    static final int MAX_SIZE = 100;
+
+    private CursorCodec() {
+    }
+
+    // Checked before querying, so a bad size never reaches the size + 1 row fetch
+    static int checkSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new RuntimeException("size must be between 1 and " + MAX_SIZE);
+        }
+        return size;
+    }
+
+    static String encode(Object sortKey, Long id) {
+        return encode("", sortKey, id);
+    }
+
+    static String encode(String sort, Object sortKey, Long id) {
+        String raw = sort + SEPARATOR + (sortKey != null ? sortKey.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String token) {
+        return decode(token, "");
+    }
+
+    static Cursor decode(String token, String sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first == last || !raw.substring(0, first).equals(sort)) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            return new Cursor(raw.substring(first + 1, last), Long.parseLong(raw.substring(last + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    // The sort a listing's cursors are bound to
+    static String sort(String property, boolean descending) {
+        return property + (descending ? ",desc" : ",asc");
+    }
+
+    // rows holds up to size + 1 entries; the extra row only signals that another page exists
+    static <E, R> CursorPage<R> toPage(List<E> rows, int size, Function<E, String> cursorOf, Function<E, R> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> pageRows = hasMore ? rows.subList(0, size) : rows;
+        return CursorPage.<R>builder()
+                .items(pageRows.stream().map(mapper).collect(Collectors.toList()))
+                .size(pageRows.size())
+                .nextCursor(hasMore ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null)
+                .build();
+    }
+
+    record Cursor(String sortKey, Long id) {
+    }
+}
@@ -0,0 +1,272 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.IdempotencyRecord;
+import SureShop.commerce.project.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Idempotency-Key support for non-repeatable POSTs. The first request with a key claims a row in
+// idempotency_keys, runs, and stores its 2xx response on that row in the same transaction as its own writes.
+// Retries replay the stored response: from memory on this instance, otherwise from the table.
+// Requests with the same key arriving while the first still runs wait for its result on this instance,
+// or get 409 if it runs on another one. Failed requests release the key so a retry runs again.
+// A claim is never deleted while pending. Once its timeout passes, a retry takes it over by changing its
+// claim token; the request that lost it then fails to store its response and its transaction rolls back.
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlSeconds;
+    private final long pendingTimeoutSeconds;
+    private final long waitSeconds;
+
+    // In-memory index by user, endpoint and key: running requests and, until they expire, their stored responses
+    private final ConcurrentHashMap<String, Execution> executions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                              @Value("${idempotency.pending-timeout-seconds:60}") long pendingTimeoutSeconds,
+                              @Value("${idempotency.wait-seconds:30}") long waitSeconds) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlSeconds = ttlSeconds;
+        this.pendingTimeoutSeconds = pendingTimeoutSeconds;
+        this.waitSeconds = waitSeconds;
+    }
+
+    // Run the action at most once per (user, endpoint, key). Without a key the action simply runs.
+    public <T> ResponseEntity<T> execute(Long userId, String endpoint, String key, Object request,
+                                         Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        String scope = userId + ":" + endpoint + ":" + key;
+        String requestHash = hash(request);
+        while (true) {
+            Execution execution = new Execution(requestHash);
+            Execution current = executions.putIfAbsent(scope, execution);
+            if (current == null) {
+                return run(scope, execution, userId, endpoint, key, bodyType, action);
+            }
+            if (current.isExpired()) {
+                executions.remove(scope, current);
+                continue;
+            }
+            if (!current.requestHash.equals(requestHash)) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            Stored stored;
+            try {
+                stored = current.result.get(waitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (ExecutionException e) {
+                continue;
+            }
+            if (stored != null) {
+                return replay(stored, bodyType);
+            }
+            // The first request failed and released the key: run this one instead
+        }
+    }
+
+    private <T> ResponseEntity<T> run(String scope, Execution execution, Long userId, String endpoint, String key,
+                                      Class<T> bodyType, Supplier<ResponseEntity<T>> action) {
+        Stored stored = null;
+        Long claimedId = null;
+        String claimToken = null;
+        try {
+            Claim claim = claim(userId, endpoint, key, execution.requestHash);
+            if (!claim.owned()) {
+                IdempotencyRecord existing = claim.record();
+                if (!existing.getRequestHash().equals(execution.requestHash)) {
+                    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+                }
+                if (existing.getStatusCode() == null) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).build();
+                }
+                stored = new Stored(existing.getStatusCode(), existing.getResponseBody(), toMillis(existing.getExpiresAt()));
+                return replay(stored, bodyType);
+            }
+            claimedId = claim.record().getId();
+            claimToken = claim.token();
+            Long recordId = claimedId;
+            String token = claimToken;
+            Stored[] completed = new Stored[1];
+            ResponseEntity<T> response = transactionTemplate.execute(status -> {
+                ResponseEntity<T> result = action.get();
+                if (result.getStatusCode().is2xxSuccessful()) {
+                    LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(ttlSeconds);
+                    String body = write(result.getBody());
+                    if (repository.complete(recordId, token, result.getStatusCode().value(), body, expiresAt) == 0) {
+                        // Ran past the pending timeout and another request took the key over
+                        throw new RuntimeException("Idempotency key was claimed by another request");
+                    }
+                    completed[0] = new Stored(result.getStatusCode().value(), body, toMillis(expiresAt));
+                } else {
+                    // Undo whatever the failed attempt wrote; the key stays free for a retry
+                    status.setRollbackOnly();
+                }
+                return result;
+            });
+            stored = completed[0];
+            return response;
+        } finally {
+            if (stored == null && claimedId != null) {
+                release(claimedId, claimToken);
+            }
+            if (stored == null) {
+                executions.remove(scope, execution);
+            }
+            execution.result.complete(stored);
+        }
+    }
+
+    // Insert the pending row that marks the key as taken, take over a pending row whose owner timed out,
+    // or return the row another request holds
+    private Claim claim(Long userId, String endpoint, String key, String requestHash) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            String token = UUID.randomUUID().toString();
+            try {
+                IdempotencyRecord record = transactionTemplate.execute(status -> repository.saveAndFlush(IdempotencyRecord.builder()
+                        .userId(userId)
+                        .endpoint(endpoint)
+                        .idempotencyKey(key)
+                        .requestHash(requestHash)
+                        .claimToken(token)
+                        .expiresAt(LocalDateTime.now().plusSeconds(pendingTimeoutSeconds))
+                        .build()));
+                return new Claim(record, token, true);
+            } catch (DataIntegrityViolationException e) {
+                IdempotencyRecord existing = transactionTemplate.execute(status ->
+                        repository.findByUserIdAndEndpointAndIdempotencyKey(userId, endpoint, key).orElse(null));
+                if (existing == null) {
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                if (!existing.getExpiresAt().isBefore(now) || !existing.getRequestHash().equals(requestHash)) {
+                    return new Claim(existing, null, false);
+                }
+                if (existing.getStatusCode() != null) {
+                    // Stored response past its TTL: the key is free again
+                    transactionTemplate.executeWithoutResult(status -> repository.deleteExpiredResponse(existing.getId(), now));
+                    continue;
+                }
+                Integer taken = transactionTemplate.execute(status -> repository.takeOver(existing.getId(),
+                        existing.getClaimToken(), token, now.plusSeconds(pendingTimeoutSeconds), now));
+                if (taken != null && taken == 1) {
+                    return new Claim(existing, token, true);
+                }
+            }
+        }
+        throw new RuntimeException("Could not claim idempotency key");
+    }
+
+    private void release(Long recordId, String claimToken) {
+        transactionTemplate.executeWithoutResult(status -> repository.release(recordId, claimToken));
+    }
+
+    private <T> ResponseEntity<T> replay(Stored stored, Class<T> bodyType) {
+        try {
+            return ResponseEntity.status(stored.status())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readValue(stored.body(), bodyType));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response cannot be read", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-seconds:300}",
+               initialDelayString = "${idempotency.purge-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void purgeExpired() {
+        try {
+            executions.values().removeIf(Execution::isExpired);
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> repository.deleteExpired(now, now.minusSeconds(ttlSeconds)));
+        } catch (RuntimeException e) {
+            // keep the schedule alive; expired rows are retried next run
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Response cannot be stored", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(write(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Claim(IdempotencyRecord record, String token, boolean owned) {
+    }
+
+    private record Stored(int status, String body, long expiresAt) {
+    }
+
+    private static class Execution {
+        final String requestHash;
+        // Completed with the stored response, or with null when the request failed and released the key
+        final CompletableFuture<Stored> result = new CompletableFuture<>();
+
+        Execution(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        boolean isExpired() {
+            Stored stored = result.getNow(null);
+            return stored != null && stored.expiresAt() < System.currentTimeMillis();
+        }
+    }
+}
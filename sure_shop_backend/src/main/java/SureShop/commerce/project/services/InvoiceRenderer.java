@@ -0,0 +1,93 @@
+package SureShop.commerce.project.services;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Lays out one invoice with OpenPDF. Works on a detached snapshot, so no database connection is held while rendering.
+@Component
+public class InvoiceRenderer {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public byte[] render(InvoiceData invoice) {
+        Font title = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 20);
+        Font heading = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Font body = FontFactory.getFont(FontFactory.HELVETICA, 10);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        Document document = new Document(PageSize.A4, 48, 48, 48, 48);
+        try {
+            PdfWriter.getInstance(document, out);
+            document.open();
+            document.add(new Paragraph("SureShop", title));
+            document.add(new Paragraph("Invoice #" + invoice.orderId(), heading));
+            document.add(new Paragraph("Order date: " + DATE.format(invoice.createdAt()), body));
+            document.add(new Paragraph("Status: " + invoice.status(), body));
+            if (invoice.paymentId() != null) {
+                document.add(new Paragraph("Payment: " + invoice.paymentId(), body));
+            }
+            document.add(new Paragraph(" ", body));
+            document.add(new Paragraph("Bill to", heading));
+            document.add(new Paragraph(invoice.customer() + " <" + invoice.email() + ">", body));
+            document.add(new Paragraph(invoice.shippingAddress(), body));
+            document.add(new Paragraph(" ", body));
+
+            PdfPTable table = new PdfPTable(new float[]{6, 1.2f, 2, 2});
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            for (String header : List.of("Item", "Qty", "Unit price", "Amount")) {
+                table.addCell(cell(header, heading, Element.ALIGN_LEFT));
+            }
+            for (InvoiceLine line : invoice.lines()) {
+                table.addCell(cell(line.title(), body, Element.ALIGN_LEFT));
+                table.addCell(cell(String.valueOf(line.quantity()), body, Element.ALIGN_RIGHT));
+                table.addCell(cell(money(line.unitPrice()), body, Element.ALIGN_RIGHT));
+                table.addCell(cell(money(line.totalPrice()), body, Element.ALIGN_RIGHT));
+            }
+            PdfPCell totalLabel = cell("Total", heading, Element.ALIGN_RIGHT);
+            totalLabel.setColspan(3);
+            table.addCell(totalLabel);
+            table.addCell(cell(money(invoice.totalPrice()), heading, Element.ALIGN_RIGHT));
+            document.add(table);
+            document.close();
+        } catch (DocumentException e) {
+            throw new RuntimeException("Invoice cannot be rendered", e);
+        }
+        return out.toByteArray();
+    }
+
+    private PdfPCell cell(String text, Font font, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, font));
+        cell.setHorizontalAlignment(alignment);
+        cell.setPadding(4);
+        return cell;
+    }
+
+    private String money(BigDecimal amount) {
+        return amount == null ? "" : "$" + amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    public record InvoiceData(Long orderId, String status, LocalDateTime createdAt, String customer, String email,
+                              String shippingAddress, String paymentId, BigDecimal totalPrice, List<InvoiceLine> lines) {
+    }
+
+    public record InvoiceLine(String title, int quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+    }
+}
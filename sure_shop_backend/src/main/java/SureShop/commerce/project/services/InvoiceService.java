@@ -0,0 +1,245 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.InvoiceKey;
+import SureShop.commerce.project.models.Order;
+import SureShop.commerce.project.models.OrderItem;
+import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.repositories.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// PDF invoices. Rendering runs on the invoiceExecutor pool, fed by a bounded queue, never on request threads;
+// a full queue is rejected immediately. Invoices of CONFIRMED and DELIVERED orders do not change until the order
+// does, so they are written once to the cache directory under the order id and version and served from there.
+@Service
+public class InvoiceService {
+
+    private static final Set<OrderStatus> CACHEABLE = EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.DELIVERED);
+
+    private final OrderRepository orderRepository;
+    private final InvoiceRenderer invoiceRenderer;
+    private final TransactionTemplate readTemplate;
+    private final Path cacheDir;
+    private final int bulkMaxOrders;
+    private final ThreadPoolTaskExecutor workers;
+
+    // Renders in progress by file name, so concurrent requests for the same invoice share one render
+    private final ConcurrentHashMap<String, CompletableFuture<Invoice>> rendering = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InvoiceService(OrderRepository orderRepository,
+                          InvoiceRenderer invoiceRenderer,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${invoice.cache-dir:invoice-cache}") String cacheDir,
+                          @Qualifier("invoiceExecutor") ThreadPoolTaskExecutor workers,
+                          @Value("${invoice.bulk.max-orders:1000}") int bulkMaxOrders) {
+        this.orderRepository = orderRepository;
+        this.invoiceRenderer = invoiceRenderer;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.cacheDir = Path.of(cacheDir).toAbsolutePath();
+        this.bulkMaxOrders = bulkMaxOrders;
+        this.workers = workers;
+    }
+
+    // The order's invoice key; empty when it does not exist or belongs to another user and the caller is no admin
+    public Optional<InvoiceKey> findInvoiceKey(Long orderId, Long userId, boolean admin) {
+        return orderRepository.findInvoiceKey(orderId)
+                .filter(key -> admin || key.getUserId().equals(userId));
+    }
+
+    // The cached file for this order version, if it has been rendered
+    public Optional<Path> cachedFile(InvoiceKey key) {
+        if (!CACHEABLE.contains(key.getStatus())) {
+            return Optional.empty();
+        }
+        Path file = cacheDir.resolve(fileName(key.getOrderId(), key.getVersion()));
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    // Render on the worker pool. Throws BusyException when the queue has no room.
+    // Concurrent requests for the same file share one render; each caller gets its own copy of the future,
+    // so a caller that cancels (a timed out request, an aborted zip) does not fail the others.
+    public CompletableFuture<Invoice> render(InvoiceKey key) {
+        String name = fileName(key.getOrderId(), key.getVersion());
+        CompletableFuture<Invoice> future = new CompletableFuture<>();
+        CompletableFuture<Invoice> running = rendering.putIfAbsent(name, future);
+        if (running != null) {
+            return running.copy();
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    future.complete(renderNow(key.getOrderId()));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    rendering.remove(name, future);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rendering.remove(name, future);
+            throw new BusyException();
+        }
+        return future.copy();
+    }
+
+    // Keys of the orders created in [from, to); throws when there are more than the bulk limit
+    public List<InvoiceKey> findInvoiceKeys(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        List<InvoiceKey> keys = orderRepository.findInvoiceKeys(from, to, PageRequest.of(0, bulkMaxOrders + 1));
+        if (keys.size() > bulkMaxOrders) {
+            throw new RuntimeException("More than " + bulkMaxOrders + " orders in range");
+        }
+        return keys;
+    }
+
+    // Write a zip of the invoices, in key order. Up to one render per worker runs ahead of the entry being written;
+    // when interactive requests fill the queue the caller's thread renders instead.
+    public void writeZip(List<InvoiceKey> keys, OutputStream out) throws IOException {
+        int window = workers.getMaxPoolSize();
+        Deque<CompletableFuture<Invoice>> pending = new ArrayDeque<>(window);
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (InvoiceKey key : keys) {
+                if (pending.size() == window) {
+                    writeEntry(zip, await(pending.removeFirst()));
+                }
+                pending.addLast(startRender(key));
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(zip, await(pending.removeFirst()));
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private CompletableFuture<Invoice> startRender(InvoiceKey key) {
+        Optional<Path> cached = cachedFile(key);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(new Invoice(key.getOrderId(), cached.get(), null));
+        }
+        try {
+            return render(key);
+        } catch (BusyException e) {
+            return CompletableFuture.completedFuture(renderNow(key.getOrderId()));
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, Invoice invoice) throws IOException {
+        zip.putNextEntry(new ZipEntry("invoice-" + invoice.orderId() + ".pdf"));
+        if (invoice.content() != null) {
+            zip.write(invoice.content());
+        } else {
+            Files.copy(invoice.file(), zip);
+        }
+        zip.closeEntry();
+    }
+
+    private Invoice await(CompletableFuture<Invoice> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering invoices", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Invoice cannot be rendered", e.getCause());
+        }
+    }
+
+    // Load a snapshot, render it, and store it when the order's invoice can be cached
+    private Invoice renderNow(Long orderId) {
+        Snapshot snapshot = readTemplate.execute(status -> load(orderId));
+        byte[] content = invoiceRenderer.render(snapshot.data());
+        Path file = null;
+        if (CACHEABLE.contains(snapshot.status())) {
+            file = store(orderId, snapshot.version(), content);
+        }
+        return new Invoice(orderId, file, content);
+    }
+
+    private Snapshot load(Long orderId) {
+        Order order = orderRepository.findWithItemsByIdIn(List.of(orderId)).stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        List<InvoiceRenderer.InvoiceLine> lines = order.getItems().stream()
+                .map((OrderItem item) -> new InvoiceRenderer.InvoiceLine(item.getProduct().getTitle(), item.getQuantity(),
+                        item.getUnitPrice(), item.getTotalPrice()))
+                .toList();
+        InvoiceRenderer.InvoiceData data = new InvoiceRenderer.InvoiceData(order.getId(), order.getStatus().name(),
+                order.getCreatedAt(), order.getUser().getUsername(), order.getUser().getEmail(),
+                order.getShippingAddress(), order.getPaymentId(), order.getTotalPrice(), lines);
+        return new Snapshot(data, order.getStatus(), order.getVersion());
+    }
+
+    // Write through a temporary file and an atomic rename, so readers never see a partial PDF;
+    // files of the order's earlier versions are removed
+    private Path store(Long orderId, Long version, byte[] content) {
+        Path file = cacheDir.resolve(fileName(orderId, version));
+        try {
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, "invoice-", ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(cacheDir, "invoice-" + orderId + "-v*.pdf")) {
+                for (Path old : stale) {
+                    if (!old.equals(file)) {
+                        Files.deleteIfExists(old);
+                    }
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            // Serve the rendered bytes anyway; the next request renders again
+            return null;
+        }
+    }
+
+    private static String fileName(Long orderId, Long version) {
+        return "invoice-" + orderId + "-v" + version + ".pdf";
+    }
+
+    // A rendered invoice: the cached file, the bytes, or both
+    public record Invoice(Long orderId, Path file, byte[] content) {
+    }
+
+    private record Snapshot(InvoiceRenderer.InvoiceData data, OrderStatus status, Long version) {
+    }
+
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Invoice queue is full");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.OrderEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// Publishes events to @EventListener(OrderEvent.class) methods on the dispatcher thread; a listener that throws
+// fails the delivery and the event is retried
+@Component
+public class ListenerOrderEventSink implements OrderEventSink {
+
+    private final ApplicationEventPublisher publisher;
+
+    @Autowired
+    public ListenerOrderEventSink(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String name() {
+        return "listener";
+    }
+
+    @Override
+    public void deliver(OrderEvent event) {
+        publisher.publishEvent(event);
+    }
+}
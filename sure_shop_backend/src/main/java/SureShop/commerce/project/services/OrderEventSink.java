@@ -0,0 +1,16 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.OrderEvent;
+
+// Destination for outbox events. Beans implementing this are enabled by name in outbox.sinks.
+// Delivery is at least once: an event may arrive again after a failure, always with the same id.
+public interface OrderEventSink {
+
+    String name();
+
+    void deliver(OrderEvent event) throws Exception;
+
+    // Called after each batch; events are only marked delivered once this returns
+    default void flush() throws Exception {
+    }
+}
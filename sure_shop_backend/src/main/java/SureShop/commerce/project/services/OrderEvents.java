@@ -0,0 +1,101 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Order;
+import SureShop.commerce.project.models.OrderItem;
+import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.models.OutboxEvent;
+import SureShop.commerce.project.repositories.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Records order events in the outbox. Callers run inside the transaction that changes the order,
+// so an event exists exactly when its change committed.
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OrderEvents {
+
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+    public static final String PAYMENT_CONFIRMED = "PAYMENT_CONFIRMED";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OrderEvents(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Order placed, with its items
+    public void placed(Order order) {
+        Map<String, Object> payload = payload(order, ORDER_PLACED, null);
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("productId", item.getProduct().getId());
+            line.put("quantity", item.getQuantity());
+            line.put("unitPrice", item.getUnitPrice());
+            items.add(line);
+        }
+        payload.put("items", items);
+        save(order, ORDER_PLACED, payload);
+    }
+
+    public void paymentConfirmed(Order order, OrderStatus previousStatus) {
+        save(order, PAYMENT_CONFIRMED, payload(order, PAYMENT_CONFIRMED, previousStatus));
+    }
+
+    public void cancelled(Order order, OrderStatus previousStatus) {
+        save(order, ORDER_CANCELLED, payload(order, ORDER_CANCELLED, previousStatus));
+    }
+
+    // Cancelled by PendingOrderReaper because it stayed unpaid past the TTL
+    public void expired(Order order) {
+        Map<String, Object> payload = payload(order, ORDER_CANCELLED, OrderStatus.PENDING);
+        payload.put("reason", "PAYMENT_TIMEOUT");
+        save(order, ORDER_CANCELLED, payload);
+    }
+
+    public void statusChanged(Order order, OrderStatus previousStatus) {
+        save(order, ORDER_STATUS_CHANGED, payload(order, ORDER_STATUS_CHANGED, previousStatus));
+    }
+
+    private Map<String, Object> payload(Order order, String type, OrderStatus previousStatus) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", type);
+        payload.put("orderId", order.getId());
+        payload.put("userId", order.getUser().getId());
+        payload.put("status", order.getStatus());
+        if (previousStatus != null) {
+            payload.put("previousStatus", previousStatus);
+        }
+        payload.put("totalPrice", order.getTotalPrice());
+        payload.put("paymentId", order.getPaymentId());
+        payload.put("transactionId", order.getTransactionId());
+        payload.put("occurredAt", order.getUpdatedAt());
+        return payload;
+    }
+
+    private void save(Order order, String type, Map<String, Object> payload) {
+        try {
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .orderId(order.getId())
+                    .eventType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Order event cannot be written", e);
+        }
+    }
+}
@@ -5,25 +5,39 @@ import SureShop.commerce.project.models.*;
 import SureShop.commerce.project.repositories.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
+    private static final int MAX_SEARCH_SIZE = 200;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final UserService userService;
     private final ProductService productService;
+    private final CartStore cartStore;
+    private final StockService stockService;
+    private final OrderEvents orderEvents;
+    private final SalesRollups salesRollups;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
@@ -31,71 +45,80 @@ public class OrderService {
                         CartRepository cartRepository,
                         CartItemRepository cartItemRepository,
                         UserService userService,
-                        ProductService productService) {
+                        ProductService productService,
+                        CartStore cartStore,
+                        StockService stockService,
+                        OrderEvents orderEvents,
+                        SalesRollups salesRollups) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.userService = userService;
         this.productService = productService;
+        this.cartStore = cartStore;
+        this.stockService = stockService;
+        this.orderEvents = orderEvents;
+        this.salesRollups = salesRollups;
     }
 
     // Checkout: create order from cart
-    public OrderResponse checkout(String username, OrderRequest request) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Cart cart = cartRepository.findByUserIdWithItems(user.getId())
+    public OrderResponse checkout(Long userId, OrderRequest request) {
+        // Write-behind cart mode: make the database copy current before reading it
+        cartStore.flushForCheckout(userId);
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         if (cart.getItems().isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
-        // Validate stock
+        // Reserve stock: one conditional decrement per product, rolled back with the checkout if any falls short
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, String> titles = new HashMap<>();
         for (CartItem item : cart.getItems()) {
-            Product product = item.getProduct();
-            if (!product.getActive() || product.getStockQuantity() < item.getQuantity()) {
-                throw new RuntimeException("Product out of stock or unavailable: " + product.getTitle());
-            }
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            titles.put(item.getProduct().getId(), item.getProduct().getTitle());
+        }
+        List<Long> unavailable = stockService.reserve(quantities);
+        if (!unavailable.isEmpty()) {
+            throw new RuntimeException("Product out of stock or unavailable: " + titles.get(unavailable.get(0)));
         }
         // Create order
         Order order = Order.builder()
-                .user(user)
+                .user(userService.getReference(userId))
                 .status(OrderStatus.PENDING)
                 .shippingAddress(request.getShippingAddress())
                 .notes(request.getNotes())
                 .totalPrice(cart.getTotalPrice())
                 .build();
         order = orderRepository.save(order);
-        // Create order items and update stock
+        // Create order items
         for (CartItem cartItem : cart.getItems()) {
             Product product = cartItem.getProduct();
             OrderItem orderItem = OrderItem.builder()
                     .order(order)
                     .product(product)
+                    .category(product.getCategory())
                     .quantity(cartItem.getQuantity())
                     .unitPrice(cartItem.getUnitPrice())
                     .totalPrice(cartItem.getTotalPrice())
                     .build();
-            orderItemRepository.save(orderItem);
-            // Update product stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productService.updateProduct(product);
+            order.getItems().add(orderItemRepository.save(orderItem));
         }
         // Clear cart
         cart.clearItems();
         cartItemRepository.deleteByCartId(cart.getId());
         cartRepository.save(cart);
-        // Reload order with items
-        order = orderRepository.findById(order.getId()).orElseThrow();
+        orderEvents.placed(order);
+        salesRollups.add(List.of(order.getId()));
         return convertToOrderResponse(order);
     }
 
     // Cancel order (if PENDING)
-    public OrderResponse cancelOrder(String username, Long orderId) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Order order = orderRepository.findById(orderId)
+    public OrderResponse cancelOrder(Long userId, Long orderId) {
+        // Locked so the order cannot be paid for or expired by the reaper while it is cancelled
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized");
         }
         if (order.getStatus() != OrderStatus.PENDING) {
@@ -104,45 +127,145 @@ public class OrderService {
         order.setStatus(OrderStatus.CANCELLED);
         order.updateTimestamp();
         orderRepository.save(order);
-        // Optionally, restock products
+        // Restock products
+        Map<Long, Integer> quantities = new HashMap<>();
         for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productService.updateProduct(product);
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
         }
+        stockService.release(quantities);
+        orderEvents.cancelled(order, OrderStatus.PENDING);
+        salesRollups.remove(List.of(orderId));
         return convertToOrderResponse(order);
     }
 
-    // User order history
-    public Page<OrderResponse> getUserOrders(String username, int page, int size) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    // User order history: ids page, then one fetch of those orders and one image lookup
+    public Page<OrderResponse> getUserOrders(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), pageable);
-        return orders.map(this::convertToOrderResponse);
+        Page<Long> orderIds = orderRepository.findIdsByUserId(userId, pageable);
+        return new PageImpl<>(convertToOrderResponses(loadOrders(orderIds.getContent())), pageable, orderIds.getTotalElements());
     }
 
     // Admin: all orders
     public Page<OrderResponse> getAllOrders(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> orders = orderRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return orders.map(this::convertToOrderResponse);
+        Page<Long> orderIds = orderRepository.findAllIds(pageable);
+        return new PageImpl<>(convertToOrderResponses(loadOrders(orderIds.getContent())), pageable, orderIds.getTotalElements());
+    }
+
+    // User order history, keyset (cursor) mode
+    public CursorPage<OrderResponse> scrollUserOrders(Long userId, String after, int size) {
+        CursorCodec.checkSize(size);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Long> orderIds;
+        if (after == null || after.isBlank()) {
+            orderIds = orderRepository.findUserOrderIds(userId, limit);
+        } else {
+            CursorCodec.Cursor cursor = CursorCodec.decode(after);
+            orderIds = orderRepository.findUserOrderIdsAfter(userId, LocalDateTime.parse(cursor.sortKey()), cursor.id(), limit);
+        }
+        return toCursorPage(loadOrders(orderIds), size);
+    }
+
+    // Admin: all orders, keyset (cursor) mode
+    public CursorPage<OrderResponse> scrollAllOrders(String after, int size) {
+        CursorCodec.checkSize(size);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Long> orderIds;
+        if (after == null || after.isBlank()) {
+            orderIds = orderRepository.findAllOrderIds(limit);
+        } else {
+            CursorCodec.Cursor cursor = CursorCodec.decode(after);
+            orderIds = orderRepository.findAllOrderIdsAfter(LocalDateTime.parse(cursor.sortKey()), cursor.id(), limit);
+        }
+        return toCursorPage(loadOrders(orderIds), size);
+    }
+
+    // Admin: filtered order search, keyset (cursor) mode, summary rows without items
+    public CursorPage<OrderSummaryResponse> searchOrders(OrderSearchRequest request, String after) {
+        int size = Math.min(Math.max(request.getSize() != null ? request.getSize() : 50, 1), MAX_SEARCH_SIZE);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OrderSummaryResponse> rows;
+        if (after == null || after.isBlank()) {
+            rows = orderRepository.searchSummaries(request.getStatus(), request.getUserId(), request.getFrom(), request.getTo(),
+                    request.getMinTotal(), request.getMaxTotal(), limit);
+        } else {
+            CursorCodec.Cursor cursor = CursorCodec.decode(after);
+            rows = orderRepository.searchSummariesAfter(request.getStatus(), request.getUserId(), request.getFrom(), request.getTo(),
+                    request.getMinTotal(), request.getMaxTotal(), LocalDateTime.parse(cursor.sortKey()), cursor.id(), limit);
+        }
+        return CursorCodec.toPage(rows, size,
+                row -> CursorCodec.encode(row.getCreatedAt(), row.getId()),
+                Function.identity());
     }
 
     // Admin: update order status
     public OrderResponse updateOrderStatus(Long orderId, OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        // Locked like cancelOrder, so the rollup adjustment below sees the status it replaces
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
         order.updateTimestamp();
         orderRepository.save(order);
+        if (previousStatus != status) {
+            orderEvents.statusChanged(order, previousStatus);
+        }
+        // Cancelled orders are not counted in the sales rollups
+        if (previousStatus != OrderStatus.CANCELLED && status == OrderStatus.CANCELLED) {
+            salesRollups.remove(List.of(orderId));
+        } else if (previousStatus == OrderStatus.CANCELLED && status != OrderStatus.CANCELLED) {
+            salesRollups.add(List.of(orderId));
+        }
         return convertToOrderResponse(order);
     }
 
     // Helper methods
+    // Second phase of a page load: the orders for the ids, with items and products, in the ids' order
+    private List<Order> loadOrders(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Order> orders = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByIdIn(orderIds)) {
+            orders.put(order.getId(), order);
+        }
+        return orderIds.stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private CursorPage<OrderResponse> toCursorPage(List<Order> rows, int size) {
+        Map<Long, String> images = productService.getFirstImages(productIds(rows));
+        return CursorCodec.toPage(rows, size,
+                order -> CursorCodec.encode(order.getCreatedAt(), order.getId()),
+                order -> convertToOrderResponse(order, images));
+    }
+
+    private List<OrderResponse> convertToOrderResponses(List<Order> orders) {
+        Map<Long, String> images = productService.getFirstImages(productIds(orders));
+        return orders.stream()
+                .map(order -> convertToOrderResponse(order, images))
+                .collect(Collectors.toList());
+    }
+
+    private Set<Long> productIds(List<Order> orders) {
+        Set<Long> productIds = new HashSet<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                productIds.add(item.getProduct().getId());
+            }
+        }
+        return productIds;
+    }
+
     private OrderResponse convertToOrderResponse(Order order) {
+        return convertToOrderResponses(List.of(order)).get(0);
+    }
+
+    private OrderResponse convertToOrderResponse(Order order, Map<Long, String> images) {
         List<OrderItemResponse> itemResponses = order.getItems().stream()
-                .map(this::convertToOrderItemResponse)
+                .map(item -> convertToOrderItemResponse(item, images))
                 .collect(Collectors.toList());
         return OrderResponse.builder()
                 .id(order.getId())
@@ -158,14 +281,13 @@ public class OrderService {
                 .updatedAt(order.getUpdatedAt())
                 .build();
     }
-    private OrderItemResponse convertToOrderItemResponse(OrderItem item) {
+    private OrderItemResponse convertToOrderItemResponse(OrderItem item, Map<Long, String> images) {
         Product product = item.getProduct();
-        String productImage = product.getImages() != null && !product.getImages().isEmpty() ? product.getImages().get(0) : null;
         return OrderItemResponse.builder()
                 .id(item.getId())
                 .productId(product.getId())
                 .productTitle(product.getTitle())
-                .productImage(productImage)
+                .productImage(images.get(product.getId()))
                 .quantity(item.getQuantity())
                 .unitPrice(item.getUnitPrice())
                 .totalPrice(item.getTotalPrice())
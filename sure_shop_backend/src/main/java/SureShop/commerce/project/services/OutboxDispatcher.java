@@ -0,0 +1,198 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.OrderEvent;
+import SureShop.commerce.project.models.OutboxEvent;
+import SureShop.commerce.project.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains outbox_events to the enabled sinks in batches, in event id order, from a single thread.
+// Delivery is at least once: an event is marked dispatched only after every sink took it and flushed,
+// so a crash or a failing sink means it is delivered again. When an event fails, later events of the same order
+// wait until it succeeds, which keeps each order's events in order. A run pages on past the events it holds back,
+// so failing events at the head of the outbox cannot stall everything behind them; they are retried first on
+// the next run. Meant to run on one instance at a time.
+@Service
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OrderEventSink> sinks;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retentionHours;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastDeliveryLagMillis;
+    private volatile long maxDeliveryLagMillis;
+    private volatile LocalDateTime lastRunAt;
+    private volatile LocalDateTime lastPurgeAt = LocalDateTime.now();
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository repository,
+                            PlatformTransactionManager transactionManager,
+                            List<OrderEventSink> availableSinks,
+                            @Value("${outbox.sinks:listener,file}") Set<String> sinkNames,
+                            @Value("${outbox.dispatch.enabled:true}") boolean enabled,
+                            @Value("${outbox.dispatch.batch-size:200}") int batchSize,
+                            @Value("${outbox.retention-hours:168}") long retentionHours) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sinks = availableSinks.stream().filter(sink -> sinkNames.contains(sink.name())).toList();
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retentionHours = retentionHours;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch.interval-ms:500}",
+               initialDelayString = "${outbox.dispatch.interval-ms:500}")
+    public void dispatchOnSchedule() {
+        if (enabled) {
+            dispatch();
+        }
+    }
+
+    // Deliver batches back to back until the run has read every pending event
+    public void dispatch() {
+        try {
+            Run run = new Run();
+            do {
+                dispatchBatch(run);
+            } while (run.more);
+            purgeDispatched();
+        } catch (RuntimeException e) {
+            // keep the schedule alive; undelivered events are retried next run
+            failures.incrementAndGet();
+        }
+        lastRunAt = LocalDateTime.now();
+    }
+
+    // The next batch of the run; returns the number of events delivered
+    int dispatchBatch(Run run) {
+        List<OutboxEvent> events = transactionTemplate.execute(status ->
+                repository.findPendingAfter(run.afterId, PageRequest.of(0, batchSize)));
+        if (events == null || events.isEmpty()) {
+            run.more = false;
+            return 0;
+        }
+        Set<Long> blockedOrders = run.blockedOrders;
+        List<OutboxEvent> delivered = new ArrayList<>(events.size());
+        Map<Long, String> failed = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            if (blockedOrders.contains(event.getOrderId())) {
+                continue;
+            }
+            try {
+                OrderEvent message = toMessage(event);
+                for (OrderEventSink sink : sinks) {
+                    sink.deliver(message);
+                }
+                delivered.add(event);
+            } catch (Exception e) {
+                blockedOrders.add(event.getOrderId());
+                failed.put(event.getId(), describe(e));
+            }
+        }
+        try {
+            for (OrderEventSink sink : sinks) {
+                sink.flush();
+            }
+        } catch (Exception e) {
+            // Nothing is confirmed; the whole batch is delivered again next run
+            failures.incrementAndGet();
+            run.more = false;
+            return 0;
+        }
+        run.afterId = events.get(events.size() - 1).getId();
+        run.more = events.size() == batchSize;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> deliveredIds = delivered.stream().map(OutboxEvent::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deliveredIds.isEmpty()) {
+                repository.markDispatched(deliveredIds, now);
+            }
+            failed.forEach(repository::markFailed);
+        });
+
+        batches.incrementAndGet();
+        dispatched.addAndGet(delivered.size());
+        failures.addAndGet(failed.size());
+        if (!delivered.isEmpty()) {
+            long maxLag = 0;
+            for (OutboxEvent event : delivered) {
+                maxLag = Math.max(maxLag, Duration.between(event.getCreatedAt(), now).toMillis());
+            }
+            lastDeliveryLagMillis = Duration.between(delivered.get(delivered.size() - 1).getCreatedAt(), now).toMillis();
+            maxDeliveryLagMillis = Math.max(maxDeliveryLagMillis, maxLag);
+        }
+        return delivered.size();
+    }
+
+    // Delivered events are kept for the retention period, then deleted at most once a minute
+    private void purgeDispatched() {
+        LocalDateTime now = LocalDateTime.now();
+        if (lastPurgeAt.plusMinutes(1).isAfter(now)) {
+            return;
+        }
+        lastPurgeAt = now;
+        transactionTemplate.executeWithoutResult(status -> repository.deleteDispatchedBefore(now.minusHours(retentionHours)));
+    }
+
+    private OrderEvent toMessage(OutboxEvent event) {
+        return OrderEvent.builder()
+                .id(event.getId())
+                .orderId(event.getOrderId())
+                .type(event.getEventType())
+                .payload(event.getPayload())
+                .createdAt(event.getCreatedAt())
+                .build();
+    }
+
+    private String describe(Exception e) {
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    public Map<String, Object> stats() {
+        LocalDateTime oldestPending = transactionTemplate.execute(status -> repository.findOldestPendingCreatedAt());
+        Long pending = transactionTemplate.execute(status -> repository.countByDispatchedAtIsNull());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sinks", sinks.stream().map(OrderEventSink::name).toList());
+        stats.put("pending", pending);
+        stats.put("oldestPendingAgeMillis", oldestPending == null ? 0 : Duration.between(oldestPending, LocalDateTime.now()).toMillis());
+        stats.put("dispatched", dispatched.get());
+        stats.put("failures", failures.get());
+        stats.put("batches", batches.get());
+        stats.put("lastDeliveryLagMillis", lastDeliveryLagMillis);
+        stats.put("maxDeliveryLagMillis", maxDeliveryLagMillis);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    // Where a run has got to, and the orders it holds back after a failure
+    static class Run {
+        long afterId;
+        boolean more;
+        final Set<Long> blockedOrders = new HashSet<>();
+    }
+}
@@ -16,10 +16,12 @@ import java.util.UUID;
 @Transactional
 public class PaymentService {
     private final OrderRepository orderRepository;
+    private final OrderEvents orderEvents;
 
     @Autowired
-    public PaymentService(OrderRepository orderRepository) {
+    public PaymentService(OrderRepository orderRepository, OrderEvents orderEvents) {
         this.orderRepository = orderRepository;
+        this.orderEvents = orderEvents;
     }
 
     // Simulate Stripe session creation
@@ -42,7 +44,8 @@ public class PaymentService {
 
     // Simulate payment confirmation
     public PaymentResponse confirmPayment(PaymentConfirmationRequest request) {
-        Order order = orderRepository.findById(request.getOrderId())
+        // Locked so a cancellation or the pending-order reaper cannot release the stock while it is paid for
+        Order order = orderRepository.findByIdForUpdate(request.getOrderId())
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         if (!"success".equalsIgnoreCase(request.getStatus())) {
             return PaymentResponse.builder()
@@ -50,12 +53,17 @@ public class PaymentService {
                     .status("failed")
                     .build();
         }
+        if (order.getStatus() != OrderStatus.PENDING) {
+            throw new RuntimeException("Order is not in a payable state");
+        }
         // Update order with payment info
+        OrderStatus previousStatus = order.getStatus();
         order.setPaymentId(request.getPaymentId());
         order.setTransactionId(request.getTransactionId());
         order.setStatus(OrderStatus.CONFIRMED);
         order.updateTimestamp();
         orderRepository.save(order);
+        orderEvents.paymentConfirmed(order, previousStatus);
         return PaymentResponse.builder()
                 .sessionId(request.getSessionId())
                 .status("confirmed")
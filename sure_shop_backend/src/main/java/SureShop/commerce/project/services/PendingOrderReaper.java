@@ -0,0 +1,168 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Order;
+import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.repositories.OrderItemRepository;
+import SureShop.commerce.project.repositories.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cancels orders left PENDING (unpaid) past the TTL and returns their stock, one chunk per transaction.
+// Each order flips with a conditional UPDATE, so one paid or cancelled in the meantime is left alone;
+// the chunk's stock goes back as one aggregated increment per product in a single batch.
+@Service
+public class PendingOrderReaper {
+
+    private static final String EXPIRE = "UPDATE orders SET status = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND status = ?";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StockService stockService;
+    private final OrderEvents orderEvents;
+    private final SalesRollups salesRollups;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long ttlMinutes;
+    private final int batchSize;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong ordersExpired = new AtomicLong();
+    private final AtomicLong unitsReleased = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile long maxRunMillis;
+    private volatile long lastRunExpired;
+    private volatile LocalDateTime lastRunAt;
+
+    @Autowired
+    public PendingOrderReaper(OrderRepository orderRepository,
+                              OrderItemRepository orderItemRepository,
+                              JdbcTemplate jdbcTemplate,
+                              StockService stockService,
+                              OrderEvents orderEvents,
+                              SalesRollups salesRollups,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${orders.pending.reap-enabled:true}") boolean enabled,
+                              @Value("${orders.pending.ttl-minutes:30}") long ttlMinutes,
+                              @Value("${orders.pending.reap-batch-size:200}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockService = stockService;
+        this.orderEvents = orderEvents;
+        this.salesRollups = salesRollups;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.ttlMinutes = ttlMinutes;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${orders.pending.reap-interval-seconds:60}",
+               initialDelayString = "${orders.pending.reap-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void reapOnSchedule() {
+        if (enabled) {
+            reap();
+        }
+    }
+
+    // Expire everything past the TTL, a chunk at a time; returns the number of orders cancelled
+    public long reap() {
+        long started = System.nanoTime();
+        long expired = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+            while (true) {
+                Chunk chunk = transactionTemplate.execute(status -> reapChunk(cutoff));
+                expired += chunk.expired();
+                if (chunk.selected() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // keep the schedule alive; what is left is picked up next run
+            failures.incrementAndGet();
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            runs.incrementAndGet();
+            lastRunMillis = millis;
+            maxRunMillis = Math.max(maxRunMillis, millis);
+            lastRunExpired = expired;
+            lastRunAt = LocalDateTime.now();
+        }
+        return expired;
+    }
+
+    Chunk reapChunk(LocalDateTime cutoff) {
+        List<Long> orderIds = orderRepository.findIdsByStatusCreatedBefore(OrderStatus.PENDING, cutoff,
+                PageRequest.of(0, batchSize));
+        if (orderIds.isEmpty()) {
+            return new Chunk(0, 0);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            args.add(new Object[]{OrderStatus.CANCELLED.name(), now, orderId, OrderStatus.PENDING.name()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(EXPIRE, args);
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                expired.add(orderIds.get(i));
+            }
+        }
+        if (expired.isEmpty()) {
+            return new Chunk(orderIds.size(), 0);
+        }
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        long units = 0;
+        for (Object[] row : orderItemRepository.sumQuantitiesByProduct(expired)) {
+            int quantity = ((Number) row[1]).intValue();
+            quantities.put((Long) row[0], quantity);
+            units += quantity;
+        }
+        stockService.release(quantities);
+        salesRollups.remove(expired);
+        for (Order order : orderRepository.findAllById(expired)) {
+            orderEvents.expired(order);
+        }
+        ordersExpired.addAndGet(expired.size());
+        unitsReleased.addAndGet(units);
+        return new Chunk(orderIds.size(), expired.size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ttlMinutes", ttlMinutes);
+        stats.put("runs", runs.get());
+        stats.put("ordersExpired", ordersExpired.get());
+        stats.put("unitsReleased", unitsReleased.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunExpired", lastRunExpired);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("maxRunMillis", maxRunMillis);
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    record Chunk(int selected, int expired) {
+    }
+}
@@ -0,0 +1,119 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded read-through cache of built ProductResponse objects keyed by product id.
+// Entries are evicted least-recently-used once maxSize is reached, and expire after the TTL.
+@Component
+public class ProductCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Invalidation counts per stripe of product ids. A read-through put passes the count it saw before loading,
+    // and is dropped if the product may have changed meanwhile, so a slow reader cannot cache a stale version.
+    private static final int GENERATION_STRIPES = 1024;
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    @Autowired
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        // access-order map gives LRU iteration order
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized ProductResponse get(Long productId) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(productId);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    // Read before loading the product that will be put
+    public synchronized long generation(Long productId) {
+        return generations[stripe(productId)];
+    }
+
+    // Caches the response unless the product was invalidated since the generation was read
+    public synchronized boolean put(Long productId, ProductResponse response, long generation) {
+        if (generations[stripe(productId)] != generation) {
+            return false;
+        }
+        entries.put(productId, new Entry(response, System.currentTimeMillis() + ttlMillis));
+        return true;
+    }
+
+    public void invalidate(Long productId) {
+        invalidateAll(List.of(productId));
+    }
+
+    public synchronized void invalidateAll(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            generations[stripe(productId)]++;
+            if (entries.remove(productId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations[i]++;
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private int stripe(Long productId) {
+        return Math.floorMod(productId.hashCode(), GENERATION_STRIPES);
+    }
+
+    private record Entry(ProductResponse value, long expiresAt) {
+    }
+}
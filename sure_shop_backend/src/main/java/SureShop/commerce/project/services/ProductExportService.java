@@ -0,0 +1,167 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Streams every active product as NDJSON or CSV over one forward-only result set.
+// Rows are scalar projections joined with their images and ordered by id, so a product's image rows
+// arrive together and are written as soon as the next id shows up; only one product is held at a time.
+@Service
+public class ProductExportService {
+
+    private static final String EXPORT_QUERY = "SELECT p.id, p.title, p.description, p.price, p.discount, p.category, " +
+            "p.stockQuantity, p.averageRating, p.totalReviews, img, p.finalPrice " +
+            "FROM Product p LEFT JOIN p.images img WHERE p.active = true ORDER BY p.id";
+    private static final String CSV_HEADER = "id,title,description,price,discount,finalPrice,category,stockQuantity,averageRating,totalReviews,images";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int flushEvery;
+
+    // Fetch size Integer.MIN_VALUE is how MySQL Connector/J is told to stream the result set row by row.
+    // Any positive value is ignored without useCursorFetch=true, and the driver then buffers the whole export
+    // in memory, so that is the default even when the property is missing.
+    @Autowired
+    public ProductExportService(PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${product.export.fetch-size:" + Integer.MIN_VALUE + "}") int fetchSize,
+                                @Value("${product.export.flush-every:1000}") int flushEvery) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.flushEvery = flushEvery;
+    }
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        export(out, false);
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        export(out, true);
+    }
+
+    private void export(OutputStream out, boolean csv) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = entityManager.createQuery(EXPORT_QUERY, Object[].class)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    Iterator<Object[]> iterator = rows.iterator();
+                    ProductResponse current = null;
+                    long written = 0;
+                    while (iterator.hasNext()) {
+                        Object[] row = iterator.next();
+                        Long id = (Long) row[0];
+                        if (current == null || !current.getId().equals(id)) {
+                            if (current != null) {
+                                write(writer, current, csv);
+                                if (++written % flushEvery == 0) {
+                                    // keep the persistence context empty and push bytes to the client
+                                    entityManager.clear();
+                                    writer.flush();
+                                }
+                            }
+                            current = toResponse(row);
+                        }
+                        if (row[9] != null) {
+                            current.getImages().add((String) row[9]);
+                        }
+                    }
+                    if (current != null) {
+                        write(writer, current, csv);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private ProductResponse toResponse(Object[] row) {
+        return ProductResponse.builder()
+                .id((Long) row[0])
+                .title((String) row[1])
+                .description((String) row[2])
+                .price((BigDecimal) row[3])
+                .discount((BigDecimal) row[4])
+                .finalPrice((BigDecimal) row[10])
+                .category((String) row[5])
+                .stockQuantity((Integer) row[6])
+                .averageRating((BigDecimal) row[7])
+                .totalReviews((Integer) row[8])
+                .active(true)
+                .images(new ArrayList<>())
+                .build();
+    }
+
+    private void write(Writer writer, ProductResponse product, boolean csv) throws IOException {
+        if (!csv) {
+            writer.write(objectMapper.writeValueAsString(product));
+            writer.write('\n');
+            return;
+        }
+        List<String> fields = List.of(
+                String.valueOf(product.getId()),
+                csvField(product.getTitle()),
+                csvField(product.getDescription()),
+                plain(product.getPrice()),
+                plain(product.getDiscount()),
+                plain(product.getFinalPrice()),
+                csvField(product.getCategory()),
+                String.valueOf(product.getStockQuantity()),
+                plain(product.getAverageRating()),
+                product.getTotalReviews() != null ? String.valueOf(product.getTotalReviews()) : "",
+                csvField(String.join("|", product.getImages())));
+        writer.write(String.join(",", fields));
+        writer.write('\n');
+    }
+
+    private String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : "";
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
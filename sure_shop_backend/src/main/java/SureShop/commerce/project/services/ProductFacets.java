@@ -0,0 +1,309 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductFacetsResponse;
+import SureShop.commerce.project.dto.ProductSearchRequest;
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Category, price band, rating band and stock counts over active products, maintained incrementally
+// on every product write so the storefront sidebar never needs a table scan.
+// Products are grouped into cells by category, price band and rating band. Writes move a product between cells
+// under the lock; snapshots take no lock and add up whole cells, looking at single products only in the cells
+// a price or rating filter cuts through. A snapshot taken during a write may see a product in its old or new cell.
+@Component
+public class ProductFacets {
+
+    private static final String[] RATING_BANDS = {"4-5", "3-4", "2-3", "1-2", "0-1"};
+
+    private final ProductRepository productRepository;
+    private final int rebuildBatchSize;
+    private final BigDecimal[] priceBoundaries;
+    private final String[] priceBands;
+
+    // Last counted state of every active product, so an update can subtract exactly what it added
+    private final Map<Long, FacetEntry> entries = new ConcurrentHashMap<>();
+    private final Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    @Autowired
+    public ProductFacets(ProductRepository productRepository,
+                         @Value("${product.facets.rebuild-batch-size:1000}") int rebuildBatchSize,
+                         @Value("${product.facets.price-bands:25,50,100,250,500}") String[] priceBoundaries) {
+        this.productRepository = productRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.priceBoundaries = new BigDecimal[priceBoundaries.length];
+        for (int i = 0; i < priceBoundaries.length; i++) {
+            this.priceBoundaries[i] = new BigDecimal(priceBoundaries[i].trim());
+        }
+        this.priceBands = new String[priceBoundaries.length + 1];
+        for (int i = 0; i <= priceBoundaries.length; i++) {
+            String lower = i == 0 ? "0" : this.priceBoundaries[i - 1].toPlainString();
+            this.priceBands[i] = i == priceBoundaries.length ? lower + "+" : lower + "-" + this.priceBoundaries[i].toPlainString();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        synchronized (this) {
+            entries.clear();
+            cells.clear();
+        }
+        long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, rebuildBatchSize));
+            for (Product product : batch) {
+                update(product);
+                lastId = product.getId();
+            }
+        } while (batch.size() == rebuildBatchSize);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Apply the current state of a product (create, update, stock or active change)
+    public synchronized void update(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        drop(product.getId());
+        if (Boolean.TRUE.equals(product.getActive())) {
+            add(product.getId(), new FacetEntry(product.getCategory(), product.getPrice(),
+                    product.getAverageRating() != null ? product.getAverageRating() : BigDecimal.ZERO,
+                    product.getStockQuantity() != null ? product.getStockQuantity() : 0));
+        }
+    }
+
+    // A new rating for a counted product; its other facet values are unchanged
+    public synchronized void updateRating(Long productId, BigDecimal rating) {
+        FacetEntry previous = entries.get(productId);
+        if (previous == null) {
+            return;
+        }
+        drop(productId);
+        add(productId, new FacetEntry(previous.category(), previous.price(),
+                rating != null ? rating : BigDecimal.ZERO, previous.stock()));
+    }
+
+    // Committed stock changes (product id -> units added, negative when taken). Deltas add up in any order,
+    // so concurrent checkouts need no reload of the rows they changed.
+    public synchronized void adjustStock(Map<Long, Integer> deltas) {
+        deltas.forEach((productId, delta) -> {
+            FacetEntry previous = entries.get(productId);
+            if (previous == null) {
+                return;
+            }
+            drop(productId);
+            add(productId, new FacetEntry(previous.category(), previous.price(), previous.rating(),
+                    previous.stock() + delta));
+        });
+    }
+
+    public synchronized void remove(Long productId) {
+        drop(productId);
+    }
+
+    public long activeCount() {
+        return entries.size();
+    }
+
+    public List<String> categories() {
+        TreeSet<String> categories = new TreeSet<>();
+        cells.forEach((key, cell) -> {
+            if (!cell.products.isEmpty()) {
+                categories.add(key.category());
+            }
+        });
+        return new ArrayList<>(categories);
+    }
+
+    // Each facet is counted with every filter except its own, so the sidebar keeps showing alternatives.
+    // Search-scoped snapshots look up just the candidate products.
+    public ProductFacetsResponse snapshot(ProductSearchRequest filters, Collection<Long> candidateIds) {
+        Counts counts = new Counts(filters);
+        if (candidateIds != null) {
+            for (Long productId : candidateIds) {
+                FacetEntry entry = entries.get(productId);
+                if (entry != null) {
+                    counts.add(entry);
+                }
+            }
+            return counts.response();
+        }
+        cells.forEach((key, cell) -> {
+            Match price = priceMatch(key.priceBand(), filters);
+            Match rating = ratingMatch(key.ratingBand(), filters);
+            if (price == Match.SOME || rating == Match.SOME) {
+                cell.products.values().forEach(counts::add);
+            } else {
+                counts.add(key, cell.products.size(), cell.inStock.get(), price == Match.ALL, rating == Match.ALL);
+            }
+        });
+        return counts.response();
+    }
+
+    // Called holding the lock
+    private void add(Long productId, FacetEntry entry) {
+        entries.put(productId, entry);
+        Cell cell = cells.computeIfAbsent(cellKey(entry), key -> new Cell());
+        cell.products.put(productId, entry);
+        if (entry.inStock()) cell.inStock.incrementAndGet();
+    }
+
+    // Called holding the lock
+    private void drop(Long productId) {
+        FacetEntry previous = entries.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        CellKey key = cellKey(previous);
+        Cell cell = cells.get(key);
+        cell.products.remove(productId);
+        if (previous.inStock()) cell.inStock.decrementAndGet();
+        if (cell.products.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    private CellKey cellKey(FacetEntry entry) {
+        return new CellKey(entry.category(), priceBand(entry.price()), ratingBand(entry.rating()));
+    }
+
+    // Whether a price band lies wholly inside, wholly outside or across the filter's [minPrice, maxPrice]
+    private Match priceMatch(int band, ProductSearchRequest filters) {
+        BigDecimal min = filters != null ? filters.getMinPrice() : null;
+        BigDecimal max = filters != null ? filters.getMaxPrice() : null;
+        BigDecimal lower = band == 0 ? BigDecimal.ZERO : priceBoundaries[band - 1];
+        BigDecimal upper = band == priceBoundaries.length ? null : priceBoundaries[band];
+        if ((max != null && lower.compareTo(max) > 0) || (min != null && upper != null && upper.compareTo(min) <= 0)) {
+            return Match.NONE;
+        }
+        if ((min == null || lower.compareTo(min) >= 0) && (max == null || (upper != null && upper.compareTo(max) <= 0))) {
+            return Match.ALL;
+        }
+        return Match.SOME;
+    }
+
+    // Rating bands cover [floor, floor + 1), the top one [4, 5]
+    private Match ratingMatch(int band, ProductSearchRequest filters) {
+        BigDecimal min = filters != null ? filters.getMinRating() : null;
+        if (min == null) {
+            return Match.ALL;
+        }
+        int floor = 4 - band;
+        if (BigDecimal.valueOf(floor).compareTo(min) >= 0) {
+            return Match.ALL;
+        }
+        boolean below = floor == 4 ? BigDecimal.valueOf(5).compareTo(min) < 0 : BigDecimal.valueOf(floor + 1).compareTo(min) <= 0;
+        return below ? Match.NONE : Match.SOME;
+    }
+
+    private int priceBand(BigDecimal price) {
+        int band = 0;
+        while (band < priceBoundaries.length && price.compareTo(priceBoundaries[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    // Ratings are 0-5; a perfect 5 falls in the top band
+    private int ratingBand(BigDecimal rating) {
+        int floor = Math.min(4, Math.max(0, rating.intValue()));
+        return 4 - floor;
+    }
+
+    private static Map<String, Long> emptyBands(String[] labels) {
+        Map<String, Long> bands = new LinkedHashMap<>();
+        for (String label : labels) {
+            bands.put(label, 0L);
+        }
+        return bands;
+    }
+
+    // Facet totals of one snapshot, fed whole cells or single products
+    private class Counts {
+        private final ProductSearchRequest filters;
+        private final Map<String, Long> categories = new TreeMap<>();
+        private final Map<String, Long> prices = emptyBands(priceBands);
+        private final Map<String, Long> ratings = emptyBands(RATING_BANDS);
+        private long total = 0;
+        private long inStock = 0;
+
+        Counts(ProductSearchRequest filters) {
+            this.filters = filters;
+        }
+
+        void add(CellKey key, long products, long productsInStock, boolean priceMatch, boolean ratingMatch) {
+            if (products == 0) {
+                return;
+            }
+            boolean categoryMatch = categoryMatch(key.category());
+            if (priceMatch && ratingMatch) categories.merge(key.category(), products, Long::sum);
+            if (categoryMatch && ratingMatch) prices.merge(priceBands[key.priceBand()], products, Long::sum);
+            if (categoryMatch && priceMatch) ratings.merge(RATING_BANDS[key.ratingBand()], products, Long::sum);
+            if (categoryMatch && priceMatch && ratingMatch) {
+                total += products;
+                inStock += productsInStock;
+            }
+        }
+
+        void add(FacetEntry entry) {
+            boolean priceMatch = filters == null || ((filters.getMinPrice() == null || entry.price().compareTo(filters.getMinPrice()) >= 0)
+                    && (filters.getMaxPrice() == null || entry.price().compareTo(filters.getMaxPrice()) <= 0));
+            boolean ratingMatch = filters == null || filters.getMinRating() == null || entry.rating().compareTo(filters.getMinRating()) >= 0;
+            add(cellKey(entry), 1, entry.inStock() ? 1 : 0, priceMatch, ratingMatch);
+        }
+
+        private boolean categoryMatch(String category) {
+            return filters == null || filters.getCategory() == null || filters.getCategory().equals(category);
+        }
+
+        ProductFacetsResponse response() {
+            return ProductFacetsResponse.builder()
+                    .totalProducts(total)
+                    .inStock(inStock)
+                    .categories(categories)
+                    .priceBands(prices)
+                    .ratingBands(ratings)
+                    .build();
+        }
+    }
+
+    private enum Match { ALL, NONE, SOME }
+
+    private record CellKey(String category, int priceBand, int ratingBand) {
+    }
+
+    private static class Cell {
+        final Map<Long, FacetEntry> products = new ConcurrentHashMap<>();
+        final AtomicLong inStock = new AtomicLong();
+    }
+
+    private record FacetEntry(String category, BigDecimal price, BigDecimal rating, int stock) {
+        boolean inStock() {
+            return stock > 0;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductImportReport;
+import SureShop.commerce.project.dto.ProductRequest;
+import SureShop.commerce.project.models.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Streams NDJSON or CSV product records from the request body and inserts them in JDBC batches,
+// one transaction per chunk. Product ids come from getGeneratedKeys on the batched insert, which
+// the IDENTITY generator prevents Hibernate from doing; images are then batched against those ids.
+@Service
+public class ProductImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // Column limits of the products table (VARCHAR(255), DECIMAL(10,2), DECIMAL(5,2)); a value outside them
+    // would fail the whole JDBC batch, so it is rejected here against its own record instead
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final String INSERT_PRODUCT = "INSERT INTO products " +
+            "(title, description, price, discount, final_price, category, stock_quantity, average_rating, total_reviews, rating_sum, active, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0, 0, ?, 0)";
+    private static final String INSERT_IMAGE = "INSERT INTO product_images (product_id, image_order, image_url) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacets productFacets;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final CatalogVersionCounter catalogVersion;
+    private final int chunkSize;
+
+    @Autowired
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                ProductSearchIndex searchIndex,
+                                ProductFacets productFacets,
+                                TopRatedLeaderboard topRatedLeaderboard,
+                                CatalogVersionCounter catalogVersion,
+                                @Value("${product.import.batch-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.searchIndex = searchIndex;
+        this.productFacets = productFacets;
+        this.topRatedLeaderboard = topRatedLeaderboard;
+        this.catalogVersion = catalogVersion;
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductImportReport importNdjson(InputStream body) throws IOException {
+        ProductImportReport report = new ProductImportReport();
+        long started = System.currentTimeMillis();
+        List<ProductRequest> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.setReceived(report.getReceived() + 1);
+            try {
+                ProductRequest request = objectMapper.readValue(line, ProductRequest.class);
+                if (request == null) {
+                    // the line was a JSON null
+                    reject(report, lineNumber, "record must be an object");
+                    continue;
+                }
+                accept(request, lineNumber, chunk, report);
+            } catch (IOException e) {
+                reject(report, lineNumber, "malformed JSON");
+            }
+        }
+        flush(chunk, report);
+        report.setDurationMillis(System.currentTimeMillis() - started);
+        return report;
+    }
+
+    // CSV with a header row; columns: title, description, price, discount, category, stockQuantity, active, images.
+    // Multiple images are separated by '|'.
+    public ProductImportReport importCsv(InputStream body) throws IOException {
+        ProductImportReport report = new ProductImportReport();
+        long started = System.currentTimeMillis();
+        List<ProductRequest> chunk = new ArrayList<>(chunkSize);
+        Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return report;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        long recordNumber = 1;
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            recordNumber++;
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            report.setReceived(report.getReceived() + 1);
+            try {
+                accept(toProductRequest(record, columns), recordNumber, chunk, report);
+            } catch (IllegalArgumentException e) {
+                reject(report, recordNumber, e.getMessage());
+            }
+        }
+        flush(chunk, report);
+        report.setDurationMillis(System.currentTimeMillis() - started);
+        return report;
+    }
+
+    private void accept(ProductRequest request, long recordNumber, List<ProductRequest> chunk, ProductImportReport report) {
+        String problem = validate(request);
+        if (problem != null) {
+            reject(report, recordNumber, problem);
+            return;
+        }
+        chunk.add(request);
+        if (chunk.size() >= chunkSize) {
+            flush(chunk, report);
+        }
+    }
+
+    private String validate(ProductRequest request) {
+        if (request.getTitle() == null || request.getTitle().isBlank()) return "title is required";
+        if (request.getTitle().length() > MAX_TEXT_LENGTH) return "title must be at most " + MAX_TEXT_LENGTH + " characters";
+        if (request.getCategory() == null || request.getCategory().isBlank()) return "category is required";
+        if (request.getCategory().length() > MAX_TEXT_LENGTH) return "category must be at most " + MAX_TEXT_LENGTH + " characters";
+        if (request.getPrice() == null || request.getPrice().signum() < 0) return "price must be zero or more";
+        if (request.getPrice().compareTo(MAX_PRICE) > 0) return "price must be at most " + MAX_PRICE;
+        if (request.getPrice().stripTrailingZeros().scale() > 2) return "price must have at most two decimals";
+        if (request.getStockQuantity() == null || request.getStockQuantity() < 0) return "stockQuantity must be zero or more";
+        if (request.getDiscount() != null) {
+            if (request.getDiscount().signum() < 0 || request.getDiscount().compareTo(BigDecimal.valueOf(100)) > 0) {
+                return "discount must be between 0 and 100";
+            }
+            if (request.getDiscount().stripTrailingZeros().scale() > 2) return "discount must have at most two decimals";
+        }
+        if (request.getImages() != null) {
+            for (String image : request.getImages()) {
+                if (image == null || image.isBlank()) return "images must not be blank";
+                if (image.length() > MAX_TEXT_LENGTH) return "image URLs must be at most " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    private void reject(ProductImportReport report, long recordNumber, String problem) {
+        report.setRejected(report.getRejected() + 1);
+        addError(report, "record " + recordNumber + ": " + problem);
+    }
+
+    private void addError(ProductImportReport report, String error) {
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(error);
+        }
+    }
+
+    // Insert and commit one chunk; a failing chunk is rolled back on its own and the import continues
+    private void flush(List<ProductRequest> chunk, ProductImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Product> inserted = transactionTemplate.execute(status -> insertChunk(chunk));
+            report.setImported(report.getImported() + inserted.size());
+            report.setChunksCommitted(report.getChunksCommitted() + 1);
+            for (Product product : inserted) {
+                searchIndex.index(product);
+                productFacets.update(product);
+                topRatedLeaderboard.update(product);
+            }
+            // New products only: nothing is cached for them yet, but listings now differ
+            catalogVersion.bump();
+        } catch (RuntimeException e) {
+            report.setFailed(report.getFailed() + chunk.size());
+            addError(report, "chunk of " + chunk.size() + " records not committed: " + e.getMessage());
+        }
+        chunk.clear();
+    }
+
+    private List<Product> insertChunk(List<ProductRequest> chunk) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Product>>) connection -> {
+            List<Product> products = new ArrayList<>(chunk.size());
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS)) {
+                for (ProductRequest request : chunk) {
+                    Product product = Product.builder()
+                            .title(request.getTitle())
+                            .description(request.getDescription())
+                            .price(request.getPrice())
+                            .discount(request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO)
+                            .images(request.getImages())
+                            .category(request.getCategory())
+                            .stockQuantity(request.getStockQuantity())
+                            .active(request.getActive() != null ? request.getActive() : true)
+                            .build();
+                    product.refreshFinalPrice();
+                    insert.setString(1, product.getTitle());
+                    if (product.getDescription() != null) {
+                        insert.setString(2, product.getDescription());
+                    } else {
+                        insert.setNull(2, Types.VARCHAR);
+                    }
+                    insert.setBigDecimal(3, product.getPrice());
+                    insert.setBigDecimal(4, product.getDiscount());
+                    insert.setBigDecimal(5, product.getFinalPrice());
+                    insert.setString(6, product.getCategory());
+                    insert.setInt(7, product.getStockQuantity());
+                    insert.setBoolean(8, product.getActive());
+                    insert.addBatch();
+                    products.add(product);
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    for (Product product : products) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated key");
+                        }
+                        product.setId(keys.getLong(1));
+                    }
+                }
+            }
+            try (PreparedStatement insertImage = connection.prepareStatement(INSERT_IMAGE)) {
+                boolean hasImages = false;
+                for (Product product : products) {
+                    if (product.getImages() == null) continue;
+                    for (int i = 0; i < product.getImages().size(); i++) {
+                        insertImage.setLong(1, product.getId());
+                        insertImage.setInt(2, i);
+                        insertImage.setString(3, product.getImages().get(i));
+                        insertImage.addBatch();
+                        hasImages = true;
+                    }
+                }
+                if (hasImages) {
+                    insertImage.executeBatch();
+                }
+            }
+            return products;
+        });
+    }
+
+    private ProductRequest toProductRequest(List<String> record, Map<String, Integer> columns) {
+        ProductRequest request = new ProductRequest();
+        request.setTitle(field(record, columns, "title"));
+        request.setDescription(field(record, columns, "description"));
+        request.setCategory(field(record, columns, "category"));
+        try {
+            String price = field(record, columns, "price");
+            request.setPrice(price != null ? new BigDecimal(price) : null);
+            String discount = field(record, columns, "discount");
+            request.setDiscount(discount != null ? new BigDecimal(discount) : null);
+            String stock = field(record, columns, "stockQuantity");
+            request.setStockQuantity(stock != null ? Integer.valueOf(stock) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed number");
+        }
+        String active = field(record, columns, "active");
+        request.setActive(active != null ? Boolean.valueOf(active) : null);
+        String images = field(record, columns, "images");
+        request.setImages(images != null ? Arrays.asList(images.split("\\|")) : null);
+        return request;
+    }
+
+    private String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // One RFC 4180 record: quoted fields may contain commas, doubled quotes and line breaks. Null at end of input.
+    private List<String> readCsvRecord(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
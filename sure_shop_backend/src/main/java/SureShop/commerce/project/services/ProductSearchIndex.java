@@ -0,0 +1,196 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// In-memory trigram index (3-character substring -> sorted product ids) over title and description of active
+// products. Replaces the leading-wildcard LIKE scan used by product search and keeps its meaning: a product
+// matches when its title or description contains the search term, ignoring case. The trigrams of the term narrow
+// the candidates, which are then checked against the indexed text.
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final ProductRepository productRepository;
+    private final int rebuildBatchSize;
+    private final int maxIdFilter;
+
+    // trigram -> postings (ids kept sorted by the skip list)
+    private final Map<String, NavigableSet<Long>> postings = new ConcurrentHashMap<>();
+    // product id -> lowercased text, to confirm candidates and to remove stale postings on update/delete
+    private final ConcurrentSkipListMap<Long, IndexedText> texts = new ConcurrentSkipListMap<>();
+
+    private volatile boolean ready = false;
+
+    @Autowired
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.index.rebuild-batch-size:1000}") int rebuildBatchSize,
+                              @Value("${search.index.max-id-filter:1000}") int maxIdFilter) {
+        this.productRepository = productRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.maxIdFilter = maxIdFilter;
+    }
+
+    // Build the index once the application is up; search falls back to SQL until then
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        postings.clear();
+        texts.clear();
+        long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, rebuildBatchSize));
+            for (Product product : batch) {
+                index(product);
+                lastId = product.getId();
+            }
+        } while (batch.size() == rebuildBatchSize);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Add or refresh a product; inactive products are removed from the index
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            remove(product.getId());
+            return;
+        }
+        IndexedText text = new IndexedText(lower(product.getTitle()), lower(product.getDescription()));
+        Set<String> grams = text.grams();
+        IndexedText previous = texts.put(product.getId(), text);
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, g -> new ConcurrentSkipListSet<>()).add(product.getId());
+        }
+        if (previous != null) {
+            for (String gram : previous.grams()) {
+                if (!grams.contains(gram)) {
+                    removePosting(gram, product.getId());
+                }
+            }
+        }
+    }
+
+    public void remove(Long productId) {
+        IndexedText previous = texts.remove(productId);
+        if (previous != null) {
+            for (String gram : previous.grams()) {
+                removePosting(gram, productId);
+            }
+        }
+    }
+
+    // Ids of products whose title or description contains the term, ignoring case, ascending
+    public List<Long> search(String searchTerm) {
+        return search(searchTerm, Integer.MAX_VALUE);
+    }
+
+    // Matches to bind as an SQL id filter, or null when there are more than search.index.max-id-filter of them;
+    // the caller then runs its LIKE query instead of binding an unbounded IN list
+    public List<Long> searchForFilter(String searchTerm) {
+        List<Long> ids = search(searchTerm, maxIdFilter + 1);
+        return ids.size() > maxIdFilter ? null : ids;
+    }
+
+    private List<Long> search(String searchTerm, int limit) {
+        String term = lower(searchTerm);
+        if (term.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> result = new ArrayList<>();
+        if (term.length() < GRAM) {
+            // Too short for a trigram: check every product's text
+            for (Map.Entry<Long, IndexedText> entry : texts.entrySet()) {
+                if (entry.getValue().contains(term)) {
+                    result.add(entry.getKey());
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+        // Walk the smallest posting set and probe the others, so no union or copy is built per query
+        List<NavigableSet<Long>> matches = new ArrayList<>();
+        for (String gram : grams(term)) {
+            NavigableSet<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            matches.add(ids);
+        }
+        matches.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        for (Long id : matches.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < matches.size() && inAll; i++) {
+                inAll = matches.get(i).contains(id);
+            }
+            // Sharing every trigram does not mean containing the term: "abc bcd" has both trigrams of "abcd"
+            IndexedText text = inAll ? texts.get(id) : null;
+            if (text != null && text.contains(term)) {
+                result.add(id);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removePosting(String gram, Long productId) {
+        postings.computeIfPresent(gram, (g, ids) -> {
+            ids.remove(productId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static String lower(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    // Title and description are checked separately, as the LIKE query does, so a match never spans the two
+    private record IndexedText(String title, String description) {
+        boolean contains(String term) {
+            return title.contains(term) || description.contains(term);
+        }
+
+        Set<String> grams() {
+            Set<String> grams = ProductSearchIndex.grams(title);
+            grams.addAll(ProductSearchIndex.grams(description));
+            return grams;
+        }
+    }
+}
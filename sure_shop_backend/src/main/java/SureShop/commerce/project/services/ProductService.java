@@ -1,5 +1,9 @@
 package SureShop.commerce.project.services;
 
+import SureShop.commerce.project.dto.CursorPage;
+import SureShop.commerce.project.dto.ProductCardResponse;
+import SureShop.commerce.project.dto.ProductFacetsResponse;
+import SureShop.commerce.project.dto.ProductRating;
 import SureShop.commerce.project.dto.ProductRequest;
 import SureShop.commerce.project.dto.ProductResponse;
 import SureShop.commerce.project.dto.ProductSearchRequest;
@@ -10,17 +14,30 @@ import SureShop.commerce.project.models.Review;
 import SureShop.commerce.project.models.User;
 import SureShop.commerce.project.repositories.ProductRepository;
 import SureShop.commerce.project.repositories.ReviewRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,12 +48,24 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final ReviewRepository reviewRepository;
     private final UserService userService;
+    private final ProductSearchIndex searchIndex;
+    private final ProductCache productCache;
+    private final ProductFacets productFacets;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final CatalogVersionCounter catalogVersion;
 
     @Autowired
-    public ProductService(ProductRepository productRepository, ReviewRepository reviewRepository, UserService userService) {
+    public ProductService(ProductRepository productRepository, ReviewRepository reviewRepository, UserService userService,
+                          ProductSearchIndex searchIndex, ProductCache productCache, ProductFacets productFacets,
+                          TopRatedLeaderboard topRatedLeaderboard, CatalogVersionCounter catalogVersion) {
         this.productRepository = productRepository;
         this.reviewRepository = reviewRepository;
         this.userService = userService;
+        this.searchIndex = searchIndex;
+        this.productCache = productCache;
+        this.productFacets = productFacets;
+        this.topRatedLeaderboard = topRatedLeaderboard;
+        this.catalogVersion = catalogVersion;
     }
 
     // Product CRUD Operations
@@ -51,8 +80,15 @@ public class ProductService {
                 .stockQuantity(request.getStockQuantity())
                 .active(request.getActive() != null ? request.getActive() : true)
                 .build();
+        product.refreshFinalPrice();
         
         Product savedProduct = productRepository.save(product);
+        afterCommit(() -> {
+            searchIndex.index(savedProduct);
+            productFacets.update(savedProduct);
+            topRatedLeaderboard.update(savedProduct);
+        });
+        catalogVersion.bumpAfterCommit();
         return convertToProductResponse(savedProduct);
     }
 
@@ -68,15 +104,59 @@ public class ProductService {
         if (request.getCategory() != null) product.setCategory(request.getCategory());
         if (request.getStockQuantity() != null) product.setStockQuantity(request.getStockQuantity());
         if (request.getActive() != null) product.setActive(request.getActive());
+        product.refreshFinalPrice();
         
         Product updatedProduct = productRepository.save(product);
+        afterCommit(() -> {
+            searchIndex.index(updatedProduct);
+            productFacets.update(updatedProduct);
+            topRatedLeaderboard.update(updatedProduct);
+            productCache.invalidate(productId);
+        });
+        catalogVersion.bumpAfterCommit();
         return convertToProductResponse(updatedProduct);
     }
 
+    // Cached responses outlive the session, so the images are copied out while it is still open
+    @Transactional(readOnly = true)
     public ProductResponse getProduct(Long productId) {
+        ProductResponse cached = productCache.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = productCache.generation(productId);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        return convertToProductResponse(product);
+        ProductResponse response = convertToProductResponse(product);
+        productCache.put(productId, response, generation);
+        return response;
+    }
+
+    // Version for a conditional GET: taken from the cached response when there is one, otherwise one scalar query
+    @Transactional(readOnly = true)
+    public Optional<Long> getProductVersion(Long productId) {
+        ProductResponse cached = productCache.get(productId);
+        if (cached != null) {
+            return Optional.of(cached.getVersion());
+        }
+        return productRepository.findVersionById(productId);
+    }
+
+    // Changes whenever any product changes; listings are tagged with it rather than with the versions on the page
+    public String getCatalogVersion() {
+        return Long.toString(catalogVersion.current());
+    }
+
+    // Cards in the order of the given ids, loaded by one projection query
+    private List<ProductCardResponse> getProductCards(List<Long> productIds) {
+        Map<Long, ProductCardResponse> cards = new HashMap<>();
+        for (ProductCardResponse card : productRepository.findCardsByIds(productIds)) {
+            cards.put(card.getId(), card);
+        }
+        return productIds.stream()
+                .map(cards::get)
+                .filter(card -> card != null)
+                .collect(Collectors.toList());
     }
 
     // Internal method to get Product entity
@@ -85,23 +165,65 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
+    // Products by id in one IN query; missing ids are simply absent from the map
+    public Map<Long, Product> getProductEntities(Collection<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findAllById(productIds)) {
+                products.put(product.getId(), product);
+            }
+        }
+        return products;
+    }
+
+    // First image per product in one query, for lists that show many products at once
+    public Map<Long, String> getFirstImages(Collection<Long> productIds) {
+        Map<Long, String> images = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Object[] row : productRepository.findFirstImages(productIds)) {
+                images.put((Long) row[0], (String) row[1]);
+            }
+        }
+        return images;
+    }
+
     public void deleteProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setActive(false);
         productRepository.save(product);
-    }
-
-    // Internal method to update and save a Product entity
-    public void updateProduct(Product product) {
-        productRepository.save(product);
+        afterCommit(() -> {
+            searchIndex.remove(productId);
+            productFacets.remove(productId);
+            topRatedLeaderboard.remove(productId);
+            productCache.invalidate(productId);
+        });
+        catalogVersion.bumpAfterCommit();
     }
 
     // Search and Filter Operations
-    public Page<ProductResponse> searchProducts(ProductSearchRequest request) {
+    public Page<ProductCardResponse> searchProducts(ProductSearchRequest request) {
         Pageable pageable = createPageable(request);
         
-        Page<Product> products = productRepository.findProductsWithFilters(
+        // Term match through the in-memory index, remaining filters on the matched ids;
+        // a term matching too many products to bind as ids goes to the LIKE query below
+        List<Long> matchingIds = request.getSearchTerm() != null && !request.getSearchTerm().isBlank() && searchIndex.isReady()
+                ? searchIndex.searchForFilter(request.getSearchTerm()) : null;
+        if (matchingIds != null) {
+            if (matchingIds.isEmpty()) {
+                return Page.empty(pageable);
+            }
+            return productRepository.findCardsWithFiltersByIds(
+                    matchingIds,
+                    request.getCategory(),
+                    request.getMinPrice(),
+                    request.getMaxPrice(),
+                    request.getMinRating(),
+                    pageable
+            );
+        }
+        
+        return productRepository.findCardsWithFilters(
                 request.getCategory(),
                 request.getMinPrice(),
                 request.getMaxPrice(),
@@ -109,39 +231,83 @@ public class ProductService {
                 request.getSearchTerm(),
                 pageable
         );
-        
-        return products.map(this::convertToProductResponse);
     }
 
-    public Page<ProductResponse> getAllProducts(int page, int size) {
+    public Page<ProductCardResponse> getAllProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("title").ascending());
-        Page<Product> products = productRepository.findByActiveTrue(pageable);
-        return products.map(this::convertToProductResponse);
+        return productRepository.findCards(pageable);
     }
 
-    public Page<ProductResponse> getProductsByCategory(String category, int page, int size) {
+    public Page<ProductCardResponse> getProductsByCategory(String category, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("title").ascending());
-        Page<Product> products = productRepository.findByCategoryAndActiveTrue(category, pageable);
-        return products.map(this::convertToProductResponse);
+        return productRepository.findCardsByCategory(category, pageable);
     }
 
-    public Page<ProductResponse> getTopRatedProducts(int page, int size) {
+    public Page<ProductCardResponse> getTopRatedProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productRepository.findTopRatedProducts(pageable);
-        return products.map(this::convertToProductResponse);
+        // Ranks within the in-memory leaderboard are served without sorting the table
+        List<Long> rankedIds = topRatedLeaderboard.isReady() ? topRatedLeaderboard.page(page, size) : null;
+        if (rankedIds != null) {
+            List<ProductCardResponse> cards = rankedIds.isEmpty() ? List.of() : getProductCards(rankedIds);
+            long total = topRatedLeaderboard.holdsWholeCatalog()
+                    ? topRatedLeaderboard.size()
+                    : productRepository.countByActiveTrue();
+            return new PageImpl<>(cards, pageable, total);
+        }
+        return productRepository.findTopRatedCards(pageable);
+    }
+
+    // Keyset (cursor) pagination over active products: seek past the last sort key and id, no count query
+    public CursorPage<ProductCardResponse> scrollProducts(ProductSearchRequest request, String after) {
+        int size = CursorCodec.checkSize(request.getSize());
+        String sortProperty = resolveSortProperty(request.getSortBy());
+        boolean descending = "desc".equalsIgnoreCase(request.getSortDirection());
+        String cursorSort = CursorCodec.sort(sortProperty, descending);
+        CursorCodec.Cursor cursor = after != null && !after.isBlank() ? CursorCodec.decode(after, cursorSort) : null;
+
+        List<Long> matchingIds = null;
+        boolean hasSearchTerm = request.getSearchTerm() != null && !request.getSearchTerm().isBlank();
+        if (hasSearchTerm && searchIndex.isReady()) {
+            matchingIds = searchIndex.searchForFilter(request.getSearchTerm());
+            if (matchingIds != null && matchingIds.isEmpty()) {
+                return CursorPage.<ProductCardResponse>builder().items(List.of()).size(0).build();
+            }
+        }
+        Specification<Product> spec = productFilters(request, matchingIds, hasSearchTerm && matchingIds == null,
+                sortProperty, descending, cursor);
+        Sort sort = descending
+                ? Sort.by(sortProperty).descending().and(Sort.by("id").descending())
+                : Sort.by(sortProperty).ascending().and(Sort.by("id").ascending());
+        List<Product> rows = productRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+        Map<Long, String> images = getFirstImages(rows.stream().map(Product::getId).toList());
+        return CursorCodec.toPage(rows, size,
+                product -> CursorCodec.encode(cursorSort, sortKey(product, sortProperty), product.getId()),
+                product -> convertToProductCard(product, images.get(product.getId())));
     }
 
     public List<String> getAllCategories() {
+        if (productFacets.isReady()) {
+            return productFacets.categories();
+        }
         return productRepository.findAllCategories();
     }
 
+    // Facet counts for the filter sidebar, optionally scoped by the current search filters
+    public ProductFacetsResponse getFacets(ProductSearchRequest request) {
+        List<Long> candidateIds = null;
+        if (request.getSearchTerm() != null && !request.getSearchTerm().isBlank()) {
+            candidateIds = searchIndex.isReady()
+                    ? searchIndex.search(request.getSearchTerm())
+                    : productRepository.searchProductIds(request.getSearchTerm());
+        }
+        return productFacets.snapshot(request, candidateIds);
+    }
+
     // Review Operations
-    public ReviewResponse addReview(Long productId, String username, ReviewRequest request) {
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+    public ReviewResponse addReview(Long productId, AuthenticatedUser user, ReviewRequest request) {
+        if (request.getRating() == null) {
+            throw new RuntimeException("Rating is required");
+        }
         
         // Check if user already reviewed this product
         Optional<Review> existingReview = reviewRepository.findByUserIdAndProductIdAndActiveTrue(user.getId(), productId);
@@ -149,17 +315,19 @@ public class ProductService {
             throw new RuntimeException("User has already reviewed this product");
         }
         
+        // Aggregates first: the row lock taken here orders this review against concurrent ones and the reconciler
+        updateProductRating(productId, request.getRating());
+        
         Review review = Review.builder()
-                .product(product)
-                .user(user)
+                .product(productRepository.getReferenceById(productId))
+                .user(userService.getReference(user.getId()))
                 .rating(request.getRating())
                 .comment(request.getComment())
                 .build();
         
         Review savedReview = reviewRepository.save(review);
-        updateProductRating(productId);
-        
-        return convertToReviewResponse(savedReview);
+        // Username from the principal rather than initializing the User proxy
+        return convertToReviewResponse(savedReview, user.getUsername());
     }
 
     public Page<ReviewResponse> getProductReviews(Long productId, int page, int size) {
@@ -168,58 +336,158 @@ public class ProductService {
         return reviews.map(this::convertToReviewResponse);
     }
 
+    public CursorPage<ReviewResponse> scrollProductReviews(Long productId, String after, int size) {
+        CursorCodec.checkSize(size);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Review> rows;
+        if (after == null || after.isBlank()) {
+            rows = reviewRepository.findByProductIdAndActiveTrueOrderByCreatedAtDescIdDesc(productId, limit);
+        } else {
+            CursorCodec.Cursor cursor = CursorCodec.decode(after);
+            rows = reviewRepository.findProductReviewsAfter(productId, LocalDateTime.parse(cursor.sortKey()), cursor.id(), limit);
+        }
+        return CursorCodec.toPage(rows, size,
+                review -> CursorCodec.encode(review.getCreatedAt(), review.getId()),
+                this::convertToReviewResponse);
+    }
+
     // Helper Methods
-    private void updateProductRating(Long productId) {
-        BigDecimal averageRating = reviewRepository.getAverageRatingByProductId(productId);
-        Long totalReviews = reviewRepository.countReviewsByProductId(productId);
-        
-        if (averageRating != null) {
-            Product product = productRepository.findById(productId).orElse(null);
-            if (product != null) {
-                product.setAverageRating(averageRating.setScale(2, RoundingMode.HALF_UP));
-                product.setTotalReviews(totalReviews.intValue());
-                productRepository.save(product);
-            }
+    // O(1) rating update: one conditional UPDATE on the running sum and count instead of AVG/COUNT over all reviews.
+    // Only the new aggregates are read back, for the facets and leaderboard; the cached response is just dropped.
+    private void updateProductRating(Long productId, BigDecimal rating) {
+        if (productRepository.applyReviewRating(productId, rating) == 0) {
+            throw new RuntimeException("Product not found");
+        }
+        ProductRating updated = productRepository.findRatingById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        afterCommit(() -> {
+            productFacets.updateRating(productId, updated.getAverageRating());
+            topRatedLeaderboard.updateRating(productId, updated.getAverageRating(), updated.getTotalReviews());
+            productCache.invalidate(productId);
+        });
+        catalogVersion.bumpAfterCommit();
+    }
+
+    // Run an action once the current transaction commits, so in-memory state never sees rolled back writes
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
     private Pageable createPageable(ProductSearchRequest request) {
         Sort sort = Sort.by(
                 request.getSortDirection().equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC,
-                request.getSortBy()
+                resolveSortProperty(request.getSortBy())
         );
         return PageRequest.of(request.getPage(), request.getSize(), sort);
     }
 
-    private ProductResponse convertToProductResponse(Product product) {
-        BigDecimal finalPrice = product.getPrice();
-        if (product.getDiscount() != null && product.getDiscount().compareTo(BigDecimal.ZERO) > 0) {
-            finalPrice = product.getPrice().subtract(
-                    product.getPrice().multiply(product.getDiscount()).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP)
-            );
+    // Map the public sortBy options onto Product attributes; products have no createdAt, ids follow insertion order
+    private String resolveSortProperty(String sortBy) {
+        if (sortBy == null) return "title";
+        switch (sortBy) {
+            case "price": return "price";
+            case "rating": return "averageRating";
+            case "createdAt": return "id";
+            default: return "title";
         }
-        
+    }
+
+    private Object sortKey(Product product, String sortProperty) {
+        switch (sortProperty) {
+            case "price": return product.getPrice();
+            case "averageRating": return product.getAverageRating();
+            case "id": return product.getId();
+            default: return product.getTitle();
+        }
+    }
+
+    private Specification<Product> productFilters(ProductSearchRequest request, List<Long> matchingIds, boolean likeFallback,
+                                                  String sortProperty, boolean descending, CursorCodec.Cursor cursor) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isTrue(root.get("active")));
+            if (request.getCategory() != null) predicates.add(cb.equal(root.get("category"), request.getCategory()));
+            if (request.getMinPrice() != null) predicates.add(cb.greaterThanOrEqualTo(root.get("price"), request.getMinPrice()));
+            if (request.getMaxPrice() != null) predicates.add(cb.lessThanOrEqualTo(root.get("price"), request.getMaxPrice()));
+            if (request.getMinRating() != null) predicates.add(cb.greaterThanOrEqualTo(root.get("averageRating"), request.getMinRating()));
+            if (matchingIds != null) predicates.add(root.get("id").in(matchingIds));
+            if (likeFallback) {
+                String pattern = "%" + request.getSearchTerm().toLowerCase() + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("title")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern)));
+            }
+            if (cursor != null) predicates.add(seekPredicate(root, cb, sortProperty, descending, cursor));
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // (key > k) OR (key = k AND id > lastId), mirrored for descending order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekPredicate(Root<Product> root, CriteriaBuilder cb, String sortProperty, boolean descending,
+                                    CursorCodec.Cursor cursor) {
+        Path<Long> id = root.get("id");
+        Predicate pastId = descending ? cb.lessThan(id, cursor.id()) : cb.greaterThan(id, cursor.id());
+        if ("id".equals(sortProperty)) {
+            return pastId;
+        }
+        Expression key = root.get(sortProperty);
+        Comparable value = "title".equals(sortProperty) ? cursor.sortKey() : new BigDecimal(cursor.sortKey());
+        Predicate pastKey = descending ? cb.lessThan(key, value) : cb.greaterThan(key, value);
+        return cb.or(pastKey, cb.and(cb.equal(key, value), pastId));
+    }
+
+    private ProductCardResponse convertToProductCard(Product product, String image) {
+        return ProductCardResponse.builder()
+                .id(product.getId())
+                .title(product.getTitle())
+                .price(product.getPrice())
+                .discount(product.getDiscount())
+                .image(image)
+                .category(product.getCategory())
+                .stockQuantity(product.getStockQuantity())
+                .averageRating(product.getAverageRating())
+                .totalReviews(product.getTotalReviews())
+                .finalPrice(product.getFinalPrice())
+                .build();
+    }
+
+    private ProductResponse convertToProductResponse(Product product) {
         return ProductResponse.builder()
                 .id(product.getId())
                 .title(product.getTitle())
                 .description(product.getDescription())
                 .price(product.getPrice())
                 .discount(product.getDiscount())
-                .images(product.getImages())
+                .images(product.getImages() == null ? null : List.copyOf(product.getImages()))
                 .category(product.getCategory())
                 .stockQuantity(product.getStockQuantity())
                 .averageRating(product.getAverageRating())
                 .totalReviews(product.getTotalReviews())
                 .active(product.getActive())
-                .finalPrice(finalPrice)
+                .finalPrice(product.getFinalPrice())
+                .version(product.getVersion())
                 .build();
     }
 
     private ReviewResponse convertToReviewResponse(Review review) {
+        return convertToReviewResponse(review, review.getUser().getUsername());
+    }
+
+    private ReviewResponse convertToReviewResponse(Review review, String username) {
         return ReviewResponse.builder()
                 .id(review.getId())
                 .productId(review.getProduct().getId())
-                .username(review.getUser().getUsername())
+                .username(username)
                 .rating(review.getRating())
                 .comment(review.getComment())
                 .createdAt(review.getCreatedAt())
@@ -0,0 +1,133 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Rebuilds the running rating aggregates on Product from the reviews table, on demand and in the background.
+// Each batch of products is recomputed by one UPDATE in its own transaction.
+@Service
+public class RatingReconciliationService {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCache productCache;
+    private final CatalogVersionCounter catalogVersion;
+    private final ProductFacets productFacets;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final int batchSize;
+
+    private final TaskExecutor executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // Set on shutdown: a running rebuild stops after its current batch, which is committed whole
+    private volatile boolean stopping = false;
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Autowired
+    public RatingReconciliationService(ProductRepository productRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       ProductCache productCache,
+                                       CatalogVersionCounter catalogVersion,
+                                       ProductFacets productFacets,
+                                       TopRatedLeaderboard topRatedLeaderboard,
+                                       @Qualifier("ratingReconcilerExecutor") TaskExecutor executor,
+                                       @Value("${product.ratings.reconcile-batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productCache = productCache;
+        this.catalogVersion = catalogVersion;
+        this.productFacets = productFacets;
+        this.topRatedLeaderboard = topRatedLeaderboard;
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    // Start a full rebuild in the background; false if one is already running
+    public boolean startReconciliation() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    reconcileAll();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // shutting down
+            running.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(lastRun);
+        status.put("running", running.get());
+        return status;
+    }
+
+    // Synchronous rebuild of a single product
+    public void reconcileProduct(Long productId) {
+        reconcileBatch(List.of(productId));
+    }
+
+    private void reconcileAll() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.currentTimeMillis();
+        long products = 0;
+        long lastId = 0L;
+        List<Long> ids;
+        do {
+            final long afterId = lastId;
+            ids = productRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+            if (!ids.isEmpty()) {
+                reconcileBatch(ids);
+                products += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == batchSize && !stopping);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", startedAt);
+        run.put("productsReconciled", products);
+        run.put("durationMillis", System.currentTimeMillis() - started);
+        lastRun = run;
+    }
+
+    private void reconcileBatch(List<Long> productIds) {
+        List<Product> products = transactionTemplate.execute(status -> {
+            productRepository.rebuildRatingAggregates(productIds);
+            return productRepository.findAllById(productIds);
+        });
+        // Committed: refresh the in-memory views that depend on ratings
+        for (Product product : products) {
+            productFacets.update(product);
+            topRatedLeaderboard.update(product);
+        }
+        productCache.invalidateAll(productIds);
+        catalogVersion.bump();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+    }
+}
@@ -0,0 +1,189 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// Maintains the sales rollup tables (sales_daily, sales_daily_product, sales_daily_category) so dashboards never
+// aggregate orders. Orders count on the day they were placed while they are not cancelled: their totals are
+// added at checkout and subtracted on cancellation, as upserts in the caller's transaction, one batch per table,
+// rows in key order so concurrent checkouts cannot deadlock on them. Every table is split into slots by order id,
+// so checkouts of the same day, product or category mostly lock different rows; readers sum the slots.
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SalesRollups {
+
+    // The category comes from the order line, not the product, so a later recategorisation cannot skew a removal
+    private static final String ORDER_LINES = "SELECT o.id, o.created_at, o.total_price, i.product_id, i.category, " +
+            "i.quantity, i.total_price FROM orders o JOIN order_items i ON i.order_id = o.id " +
+            "WHERE o.id IN (%s) ORDER BY o.id";
+    private static final String DAY_ORDER_IDS = "SELECT id FROM orders WHERE created_at >= ? AND created_at < ? " +
+            "AND status <> ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPSERT_DAILY = "INSERT INTO sales_daily (sales_date, slot, order_count, units, revenue) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "units = units + VALUES(units), revenue = revenue + VALUES(revenue)";
+    private static final String UPSERT_PRODUCT = "INSERT INTO sales_daily_product (sales_date, product_id, slot, order_count, units, revenue) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "units = units + VALUES(units), revenue = revenue + VALUES(revenue)";
+    private static final String UPSERT_CATEGORY = "INSERT INTO sales_daily_category (sales_date, category, slot, order_count, units, revenue) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "units = units + VALUES(units), revenue = revenue + VALUES(revenue)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int dailySlots;
+    private final int chunkSize;
+
+    @Autowired
+    public SalesRollups(JdbcTemplate jdbcTemplate,
+                        @Value("${analytics.daily-slots:8}") int dailySlots,
+                        @Value("${analytics.rebuild.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dailySlots = dailySlots;
+        this.chunkSize = chunkSize;
+    }
+
+    // Count the orders in, e.g. a new order
+    public void add(Collection<Long> orderIds) {
+        apply(orderIds, 1);
+    }
+
+    // Take the orders out again, e.g. a cancelled order
+    public void remove(Collection<Long> orderIds) {
+        apply(orderIds, -1);
+    }
+
+    private void apply(Collection<Long> orderIds, int sign) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Delta delta = new Delta();
+        load(orderIds, delta);
+        write(delta, sign);
+    }
+
+    // Recompute one day from its orders, reading them in id-ordered chunks. Run it in its own transaction:
+    // the deleted rows stay locked until commit, so checkouts of that day wait and then add on top of the result.
+    public void rebuildDay(LocalDate day) {
+        jdbcTemplate.update("DELETE FROM sales_daily WHERE sales_date = ?", day);
+        jdbcTemplate.update("DELETE FROM sales_daily_product WHERE sales_date = ?", day);
+        jdbcTemplate.update("DELETE FROM sales_daily_category WHERE sales_date = ?", day);
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        Delta delta = new Delta();
+        long afterId = 0;
+        while (true) {
+            List<Long> orderIds = jdbcTemplate.queryForList(DAY_ORDER_IDS, Long.class,
+                    start, end, OrderStatus.CANCELLED.name(), afterId, chunkSize);
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            load(orderIds, delta);
+            afterId = orderIds.get(orderIds.size() - 1);
+            if (orderIds.size() < chunkSize) {
+                break;
+            }
+        }
+        write(delta, 1);
+    }
+
+    // Add the orders' lines to the delta. Lines come grouped by order, so an order is counted once per day,
+    // product and category however many lines it has there.
+    private void load(Collection<Long> orderIds, Delta delta) {
+        String sql = String.format(ORDER_LINES, String.join(",", Collections.nCopies(orderIds.size(), "?")));
+        long[] currentOrder = {-1};
+        Set<Object> seenInOrder = new HashSet<>();
+        jdbcTemplate.query(sql, rs -> {
+            long orderId = rs.getLong(1);
+            LocalDate day = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+            Long productId = rs.getLong(4);
+            String category = rs.getString(5);
+            int quantity = rs.getInt(6);
+            BigDecimal lineTotal = rs.getBigDecimal(7);
+            boolean newOrder = orderId != currentOrder[0];
+            if (newOrder) {
+                currentOrder[0] = orderId;
+                seenInOrder.clear();
+            }
+            int slot = (int) (orderId % dailySlots);
+            Totals daily = delta.daily.computeIfAbsent(new DayKey(day, slot), key -> new Totals());
+            daily.add(newOrder, quantity, newOrder ? rs.getBigDecimal(3) : BigDecimal.ZERO);
+            ProductKey productKey = new ProductKey(day, productId, slot);
+            delta.products.computeIfAbsent(productKey, key -> new Totals())
+                    .add(seenInOrder.add(productKey), quantity, lineTotal);
+            CategoryKey categoryKey = new CategoryKey(day, category, slot);
+            delta.categories.computeIfAbsent(categoryKey, key -> new Totals())
+                    .add(seenInOrder.add(categoryKey), quantity, lineTotal);
+        }, orderIds.toArray());
+    }
+
+    private void write(Delta delta, int sign) {
+        jdbcTemplate.batchUpdate(UPSERT_DAILY, args(delta.daily, key -> new Object[]{key.day(), key.slot()}, sign));
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT, args(delta.products, key -> new Object[]{key.day(), key.productId(), key.slot()}, sign));
+        jdbcTemplate.batchUpdate(UPSERT_CATEGORY, args(delta.categories, key -> new Object[]{key.day(), key.category(), key.slot()}, sign));
+    }
+
+    private <K> List<Object[]> args(Map<K, Totals> rows, Function<K, Object[]> keyColumns, int sign) {
+        List<Object[]> args = new ArrayList<>(rows.size());
+        rows.forEach((key, totals) -> {
+            Object[] columns = keyColumns.apply(key);
+            Object[] row = Arrays.copyOf(columns, columns.length + 3);
+            row[columns.length] = sign * totals.orders;
+            row[columns.length + 1] = sign * totals.units;
+            row[columns.length + 2] = totals.revenue.multiply(BigDecimal.valueOf(sign));
+            args.add(row);
+        });
+        return args;
+    }
+
+    private record DayKey(LocalDate day, int slot) {
+    }
+
+    private record ProductKey(LocalDate day, Long productId, int slot) {
+    }
+
+    private record CategoryKey(LocalDate day, String category, int slot) {
+    }
+
+    private static class Totals {
+        long orders;
+        long units;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(boolean newOrder, int quantity, BigDecimal amount) {
+            if (newOrder) {
+                orders++;
+            }
+            units += quantity;
+            revenue = revenue.add(amount);
+        }
+    }
+
+    // Totals per rollup row, sorted by primary key
+    private static class Delta {
+        final Map<DayKey, Totals> daily = new TreeMap<>(
+                Comparator.comparing(DayKey::day).thenComparingInt(DayKey::slot));
+        final Map<ProductKey, Totals> products = new TreeMap<>(
+                Comparator.comparing(ProductKey::day).thenComparing(ProductKey::productId).thenComparingInt(ProductKey::slot));
+        final Map<CategoryKey, Totals> categories = new TreeMap<>(
+                Comparator.comparing(CategoryKey::day).thenComparing(CategoryKey::category).thenComparingInt(CategoryKey::slot));
+    }
+}
@@ -0,0 +1,91 @@
+package SureShop.commerce.project.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Stock changes as conditional UPDATEs in the caller's transaction, one JDBC batch per call.
+// The database checks and decrements in one statement, so concurrent checkouts can never take the same units;
+// rows are updated in product id order so two checkouts locking the same products cannot deadlock.
+@Service
+public class StockService {
+
+    private static final String RESERVE = "UPDATE products SET stock_quantity = stock_quantity - ?, version = version + 1 " +
+            "WHERE id = ? AND active = true AND stock_quantity >= ?";
+    private static final String RELEASE = "UPDATE products SET stock_quantity = stock_quantity + ?, version = version + 1 " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductFacets productFacets;
+    private final ProductCache productCache;
+
+    @Autowired
+    public StockService(JdbcTemplate jdbcTemplate,
+                        ProductFacets productFacets,
+                        ProductCache productCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productFacets = productFacets;
+        this.productCache = productCache;
+    }
+
+    // Take the quantities (product id -> units) from stock. Returns the ids that were inactive or short;
+    // when that list is not empty the caller must fail its transaction, which undoes the rows that succeeded.
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Object[]> args = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> args.add(new Object[]{quantity, productId, quantity}));
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE, args);
+
+        List<Long> failed = new ArrayList<>();
+        int i = 0;
+        for (Long productId : ordered.keySet()) {
+            if (counts[i++] != 1) {
+                failed.add(productId);
+            }
+        }
+        if (failed.isEmpty()) {
+            Map<Long, Integer> deltas = new TreeMap<>();
+            ordered.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+            refreshAfterCommit(deltas);
+        }
+        return failed;
+    }
+
+    // Put the quantities back, e.g. for a cancelled order
+    public void release(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Object[]> args = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> args.add(new Object[]{quantity, productId}));
+        jdbcTemplate.batchUpdate(RELEASE, args);
+        refreshAfterCommit(ordered);
+    }
+
+    // Stock counts and cached responses follow the committed deltas. This runs in afterCompletion, once the
+    // caller's connection is released, and reads nothing back, so a checkout never holds a second connection.
+    private void refreshAfterCommit(Map<Long, Integer> deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(deltas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    refresh(deltas);
+                }
+            }
+        });
+    }
+
+    private void refresh(Map<Long, Integer> deltas) {
+        productFacets.adjustStock(deltas);
+        productCache.invalidateAll(deltas.keySet());
+    }
+}
@@ -0,0 +1,166 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Top-N active products ranked by average rating, then review count, kept in a skip list.
+// Only rating changes and activation/deactivation touch it; reads walk the first ranks in O(page size).
+@Component
+public class TopRatedLeaderboard {
+
+    private static final Comparator<RankEntry> RANKING = Comparator.comparing(RankEntry::rating).reversed()
+            .thenComparing(Comparator.comparingInt(RankEntry::totalReviews).reversed())
+            .thenComparingLong(RankEntry::productId);
+
+    private final ProductRepository productRepository;
+    private final int capacity;
+
+    private final ConcurrentSkipListSet<RankEntry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final Map<Long, RankEntry> entries = new ConcurrentHashMap<>();
+
+    // false when a ranked product dropped out and an unranked one may now belong in the top N
+    private volatile boolean complete = false;
+    // true when the whole active catalog fits, so nothing outside the set can be promoted
+    private volatile boolean holdsWholeCatalog = false;
+    // false until the first load from the database has finished
+    private volatile boolean ready = false;
+
+    @Autowired
+    public TopRatedLeaderboard(ProductRepository productRepository,
+                               @Value("${product.top-rated.capacity:1000}") int capacity) {
+        this.productRepository = productRepository;
+        this.capacity = capacity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refill();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Ranked products; the number of active products when the whole catalog fits
+    public int size() {
+        return ranking.size();
+    }
+
+    public boolean holdsWholeCatalog() {
+        return holdsWholeCatalog;
+    }
+
+    // Product ids for the requested page, or null when the page lies beyond the ranked top N.
+    // Pages are capped at the capacity, so a read never walks more than capacity entries.
+    public List<Long> page(int page, int size) {
+        if (page < 0 || size <= 0 || (long) (page + 1) * size > capacity) {
+            return null;
+        }
+        if (!complete) {
+            refill();
+        }
+        if ((long) page * size >= ranking.size()) {
+            // Past the last ranked product: the end of the catalog, or ranks only the database knows
+            return holdsWholeCatalog ? List.of() : null;
+        }
+        List<Long> ids = new ArrayList<>(size);
+        Iterator<RankEntry> iterator = ranking.iterator();
+        for (int skip = page * size; skip > 0 && iterator.hasNext(); skip--) {
+            iterator.next();
+        }
+        while (ids.size() < size && iterator.hasNext()) {
+            ids.add(iterator.next().productId());
+        }
+        return ids;
+    }
+
+    // Re-rank a product after its rating or active flag changed
+    public synchronized void update(Product product) {
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            remove(product.getId());
+            return;
+        }
+        updateRating(product.getId(), product.getAverageRating(), product.getTotalReviews());
+    }
+
+    // New rating aggregates of an active product
+    public synchronized void updateRating(Long productId, BigDecimal rating, Integer totalReviews) {
+        RankEntry entry = new RankEntry(productId,
+                rating != null ? rating : BigDecimal.ZERO,
+                totalReviews != null ? totalReviews : 0);
+        RankEntry previous = entries.remove(productId);
+        if (entry.equals(previous)) {
+            entries.put(entry.productId(), entry);
+            return;
+        }
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        // anything outside the set ranks below the current tail, so beating the tail is enough to belong
+        boolean beatsTail = !ranking.isEmpty() && RANKING.compare(entry, ranking.last()) < 0;
+        if (holdsWholeCatalog || beatsTail) {
+            ranking.add(entry);
+            entries.put(entry.productId(), entry);
+            while (ranking.size() > capacity) {
+                RankEntry dropped = ranking.pollLast();
+                entries.remove(dropped.productId());
+                holdsWholeCatalog = false;
+            }
+        } else if (previous != null) {
+            // a ranked product fell below the tail; whoever is next is not in memory
+            complete = false;
+        }
+    }
+
+    public synchronized void remove(Long productId) {
+        RankEntry previous = entries.remove(productId);
+        if (previous != null) {
+            ranking.remove(previous);
+            if (!holdsWholeCatalog) {
+                complete = false;
+            }
+        }
+    }
+
+    // Reload the top N from the database; only needed at startup and after a ranked product drops out
+    public synchronized void refill() {
+        if (complete) {
+            return;
+        }
+        List<Product> top = productRepository.findTopRatedProducts(PageRequest.of(0, capacity)).getContent();
+        ranking.clear();
+        entries.clear();
+        for (Product product : top) {
+            RankEntry entry = new RankEntry(product.getId(),
+                    product.getAverageRating() != null ? product.getAverageRating() : BigDecimal.ZERO,
+                    product.getTotalReviews() != null ? product.getTotalReviews() : 0);
+            ranking.add(entry);
+            entries.put(entry.productId(), entry);
+        }
+        holdsWholeCatalog = top.size() < capacity;
+        complete = true;
+        ready = true;
+    }
+
+    private record RankEntry(Long productId, BigDecimal rating, int totalReviews) {
+    }
+}
@@ -22,6 +22,11 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    // Proxy for associations when only the id is known (e.g. from the JWT principal); does not hit the database
+    public User getReference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -0,0 +1,119 @@
+package SureShop.commerce.project.controllers;
+
+import SureShop.commerce.project.dto.CheckoutRequestStatus;
+import SureShop.commerce.project.dto.OrderRequest;
+import SureShop.commerce.project.dto.OrderResponse;
+import SureShop.commerce.project.services.AuthenticatedUser;
+import SureShop.commerce.project.services.CartService;
+import SureShop.commerce.project.services.CheckoutQueue;
+import SureShop.commerce.project.services.IdempotencyService;
+import SureShop.commerce.project.services.InvoiceService;
+import SureShop.commerce.project.services.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderControllerTest {
+
+    private OrderService orderService;
+    private ThreadPoolTaskExecutor workers;
+    private OrderController orderController;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        orderService = mock(OrderService.class);
+        CartService cartService = mock(CartService.class);
+        when(cartService.getCartItemCount(any())).thenReturn(1);
+        when(orderService.checkout(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return OrderResponse.builder().id(100L + (Long) invocation.getArgument(0)).build();
+        });
+        // One worker and room for one queued checkout
+        workers = new ThreadPoolTaskExecutor();
+        workers.setCorePoolSize(1);
+        workers.setMaxPoolSize(1);
+        workers.setQueueCapacity(1);
+        workers.initialize();
+        CheckoutQueue checkoutQueue = new CheckoutQueue(orderService, cartService, workers, 3600);
+        orderController = new OrderController(orderService, checkoutQueue, mock(IdempotencyService.class),
+                mock(InvoiceService.class), 30000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        workers.shutdown();
+    }
+
+    private Authentication user(long id) {
+        AuthenticatedUser principal = new AuthenticatedUser(id, "user" + id, List.of("ROLE_USER"));
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private ResponseEntity<CheckoutRequestStatus> submit(long userId) {
+        OrderRequest request = new OrderRequest();
+        request.setShippingAddress("1 Main St");
+        return orderController.checkoutAsync(request, user(userId));
+    }
+
+    @Test
+    void testCheckoutAsync_DuplicateSubmitReturnsQueuedRequest() throws Exception {
+        ResponseEntity<CheckoutRequestStatus> first = submit(1);
+        assertEquals(HttpStatus.ACCEPTED, first.getStatusCode());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ResponseEntity<CheckoutRequestStatus> again = submit(1);
+        assertEquals(HttpStatus.ACCEPTED, again.getStatusCode());
+        assertEquals(first.getBody().getRequestId(), again.getBody().getRequestId());
+        assertEquals(first.getHeaders().getLocation(), again.getHeaders().getLocation());
+
+        release.countDown();
+        String requestId = first.getBody().getRequestId();
+        CheckoutRequestStatus status = null;
+        for (int i = 0; i < 100; i++) {
+            status = orderController.getCheckoutStatus(requestId, user(1)).getBody();
+            if ("COMPLETED".equals(status.getStatus())) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(101L, status.getOrderId());
+        verify(orderService, times(1)).checkout(eq(1L), any());
+    }
+
+    @Test
+    void testCheckoutAsync_FullQueueIsTooManyRequests() throws Exception {
+        assertEquals(HttpStatus.ACCEPTED, submit(1).getStatusCode());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.ACCEPTED, submit(2).getStatusCode());
+
+        ResponseEntity<CheckoutRequestStatus> rejected = submit(3);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        // A rejected submit leaves nothing pending, so the user can retry once there is room
+        release.countDown();
+        for (int i = 0; i < 100 && submit(3).getStatusCode() != HttpStatus.ACCEPTED; i++) {
+            Thread.sleep(20);
+        }
+        verify(orderService, timeout(5000)).checkout(eq(3L), any());
+    }
+}
@@ -0,0 +1,79 @@
+package SureShop.commerce.project.controllers;
+
+import SureShop.commerce.project.dto.ProductCardResponse;
+import SureShop.commerce.project.dto.ProductResponse;
+import SureShop.commerce.project.services.ProductExportService;
+import SureShop.commerce.project.services.ProductImportService;
+import SureShop.commerce.project.services.ProductService;
+import SureShop.commerce.project.services.RatingReconciliationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductControllerTest {
+
+    private ProductService productService;
+    private ProductController productController;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        productController = new ProductController(productService, mock(RatingReconciliationService.class),
+                mock(ProductImportService.class), mock(ProductExportService.class));
+        when(productService.getCatalogVersion()).thenReturn("12");
+        when(productService.getAllProducts(anyInt(), anyInt())).thenReturn(new PageImpl<>(List.<ProductCardResponse>of()));
+    }
+
+    @Test
+    void testGetAllProducts_NotModifiedWhenIfNoneMatchHoldsCatalogVersion() {
+        ResponseEntity<Page<ProductCardResponse>> response = productController.getAllProducts(0, 20, "\"catalog-12\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"catalog-12\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(productService, never()).getAllProducts(anyInt(), anyInt());
+
+        // A weak tag from a proxy, or one of several tags, still matches
+        assertEquals(HttpStatus.NOT_MODIFIED, productController.getAllProducts(0, 20, "W/\"catalog-12\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                productController.getAllProducts(0, 20, "\"catalog-11\", \"catalog-12\"").getStatusCode());
+        verify(productService, never()).getAllProducts(anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetAllProducts_FullResponseForStaleOrMissingTag() {
+        ResponseEntity<Page<ProductCardResponse>> response = productController.getAllProducts(0, 20, "\"catalog-11\"");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"catalog-12\"", response.getHeaders().getETag());
+        assertNotNull(response.getBody());
+
+        assertEquals(HttpStatus.OK, productController.getAllProducts(0, 20, null).getStatusCode());
+        verify(productService, times(2)).getAllProducts(0, 20);
+    }
+
+    @Test
+    void testGetProduct_NotModifiedWithoutLoadingProduct() {
+        when(productService.getProductVersion(5L)).thenReturn(Optional.of(3L));
+        when(productService.getProduct(5L)).thenReturn(ProductResponse.builder().id(5L).version(4L).build());
+
+        ResponseEntity<ProductResponse> response = productController.getProduct(5L, "\"p5-3\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"p5-3\"", response.getHeaders().getETag());
+        verify(productService, never()).getProduct(any());
+
+        when(productService.getProductVersion(5L)).thenReturn(Optional.of(4L));
+        response = productController.getProduct(5L, "\"p5-3\"");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"p5-4\"", response.getHeaders().getETag());
+    }
+}
@@ -0,0 +1,58 @@
+package SureShop.commerce.project.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingTest {
+
+    // The BigDecimal formula Pricing replaces
+    private BigDecimal reference(BigDecimal price, BigDecimal discount) {
+        if (discount.compareTo(BigDecimal.ZERO) <= 0) {
+            return price;
+        }
+        return price.subtract(price.multiply(discount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void testFinalPrice_MatchesBigDecimalRounding() {
+        for (long priceCents = 0; priceCents <= 20_000; priceCents += 7) {
+            for (long discountBasisPoints = 0; discountBasisPoints <= 10_000; discountBasisPoints += 37) {
+                BigDecimal price = BigDecimal.valueOf(priceCents, 2);
+                BigDecimal discount = BigDecimal.valueOf(discountBasisPoints, 2);
+                assertEquals(reference(price, discount), Pricing.finalPrice(price, discount),
+                        () -> price + " less " + discount + "%");
+            }
+        }
+    }
+
+    @Test
+    void testFinalPrice_HalfUpAtTheCent() {
+        // 0.05 * 10% = 0.005 rounds up to one cent off
+        assertEquals(new BigDecimal("0.04"), Pricing.finalPrice(new BigDecimal("0.05"), new BigDecimal("10")));
+        assertEquals(new BigDecimal("19.99"), Pricing.finalPrice(new BigDecimal("19.99"), null));
+    }
+
+    @Test
+    void testFinalPrice_RoundsExtraDecimalsToTheCent() {
+        // 19.999 is stored as 20.00 and 12.555% as 12.56%
+        assertEquals(new BigDecimal("17.50"), Pricing.finalPrice(new BigDecimal("19.999"), new BigDecimal("12.5")));
+        assertEquals(new BigDecimal("17.49"), Pricing.finalPrice(new BigDecimal("19.999"), new BigDecimal("12.555")));
+        assertEquals(2000, Pricing.toCents(new BigDecimal("19.995")));
+    }
+
+    @Test
+    void testCartTotal_SumsLineTotals() {
+        CartItem first = CartItem.builder().unitPrice(new BigDecimal("0.10")).quantity(3).build();
+        CartItem second = CartItem.builder().unitPrice(new BigDecimal("19.99")).quantity(2).build();
+        first.calculateTotalPrice();
+        second.calculateTotalPrice();
+
+        assertEquals(new BigDecimal("0.30"), first.getTotalPrice());
+        assertEquals(new BigDecimal("40.28"), Pricing.cartTotal(List.of(first, second)));
+    }
+}
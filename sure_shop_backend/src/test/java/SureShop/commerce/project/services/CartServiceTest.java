@@ -0,0 +1,180 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CartBatchRequest;
+import SureShop.commerce.project.dto.CartItemResponse;
+import SureShop.commerce.project.dto.CartOperationRequest;
+import SureShop.commerce.project.dto.CartItemRequest;
+import SureShop.commerce.project.dto.CartResponse;
+import SureShop.commerce.project.models.Cart;
+import SureShop.commerce.project.models.CartItem;
+import SureShop.commerce.project.models.Pricing;
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.models.User;
+import SureShop.commerce.project.repositories.CartItemRepository;
+import SureShop.commerce.project.repositories.CartRepository;
+import SureShop.commerce.project.repositories.ProductRepository;
+import SureShop.commerce.project.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CartServiceTest {
+    private static final Long USER_ID = 7L;
+
+    private ProductService productService;
+    private CartStore cartStore;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        CartRepository cartRepository = mock(CartRepository.class);
+        CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+        productService = mock(ProductService.class);
+        cartStore = new CartStore(cartRepository, cartItemRepository, mock(UserRepository.class),
+                mock(ProductRepository.class), mock(PlatformTransactionManager.class), "memory", 200, 1800);
+        cartService = new CartService(cartRepository, cartItemRepository, productService,
+                mock(UserService.class), cartStore);
+        when(productService.getProductEntities(any())).thenReturn(Map.of(
+                1L, product(1L, 5, true),
+                2L, product(2L, 3, true),
+                3L, product(3L, 10, false)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartStore.shutdown();
+    }
+
+    private Product product(Long id, int stock, boolean active) {
+        return Product.builder()
+                .id(id).title("P" + id).price(new BigDecimal("10.00")).discount(BigDecimal.ZERO)
+                .finalPrice(new BigDecimal("10.00")).category("home").stockQuantity(stock).active(active)
+                .images(new ArrayList<>()).build();
+    }
+
+    private CartOperationRequest operation(String type, Long productId, Integer quantity) {
+        CartOperationRequest operation = new CartOperationRequest();
+        operation.setType(type);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private CartResponse apply(CartOperationRequest... operations) {
+        return apply(cartService, operations);
+    }
+
+    private CartResponse apply(CartService service, CartOperationRequest... operations) {
+        CartBatchRequest request = new CartBatchRequest();
+        request.setOperations(List.of(operations));
+        return service.applyBatch(USER_ID, request);
+    }
+
+    private Map<Long, Integer> quantities(CartResponse cart) {
+        return cart.getItems().stream()
+                .collect(Collectors.toMap(CartItemResponse::getProductId, CartItemResponse::getQuantity));
+    }
+
+    @Test
+    void testApplyBatch_AppliesOperationsInOrder() {
+        CartResponse cart = apply(
+                operation("add", 1L, 2),
+                operation("update", 1L, 4),
+                operation("add", 2L, 1),
+                operation("remove", 2L, null),
+                operation("add", 2L, 2),
+                operation("add", 1L, 1));
+
+        assertEquals(Map.of(1L, 5, 2L, 2), quantities(cart));
+        assertEquals(7, cart.getTotalItems());
+
+        // An update or remove only sees items that exist at that point of the batch
+        assertThrows(RuntimeException.class, () -> apply(operation("remove", 1L, null), operation("update", 1L, 1)));
+        assertEquals(Map.of(1L, 5, 2L, 2), quantities(cartService.getUserCart(USER_ID)));
+    }
+
+    @Test
+    void testApplyBatch_ValidatesEachItemAndAppliesNothingOnFailure() {
+        apply(operation("add", 1L, 2));
+
+        // Stock is checked against the resulting quantity, not each step
+        assertThrows(RuntimeException.class, () -> apply(operation("add", 2L, 1), operation("add", 1L, 4)));
+        assertThrows(RuntimeException.class, () -> apply(operation("add", 2L, 1), operation("add", 3L, 1)));
+        assertThrows(RuntimeException.class, () -> apply(operation("add", 2L, 1), operation("add", 99L, 1)));
+        assertThrows(RuntimeException.class, () -> apply(operation("add", 2L, 1), operation("update", 1L, 0)));
+        assertThrows(RuntimeException.class, () -> apply(operation("add", 2L, 1), operation("clear", 1L, null)));
+        assertEquals(Map.of(1L, 2), quantities(cartService.getUserCart(USER_ID)));
+
+        // A step over stock that a later step brings back within it is fine, as is an unavailable product
+        // that leaves the cart again in the same batch
+        CartResponse cart = apply(
+                operation("add", 2L, 5),
+                operation("update", 2L, 3),
+                operation("add", 3L, 1),
+                operation("remove", 3L, null));
+        assertEquals(Map.of(1L, 2, 2L, 3), quantities(cart));
+    }
+
+    @Test
+    void testDatabaseCart_TotalsFollowUpdateAndRemove() {
+        CartRepository cartRepository = mock(CartRepository.class);
+        CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+        CartStore databaseStore = new CartStore(cartRepository, cartItemRepository, mock(UserRepository.class),
+                mock(ProductRepository.class), mock(PlatformTransactionManager.class), "database", 200, 1800);
+        CartService databaseCartService = new CartService(cartRepository, cartItemRepository, productService,
+                mock(UserService.class), databaseStore);
+
+        Cart cart = Cart.builder().id(1L).user(User.builder().id(USER_ID).build()).build();
+        Product lamp = product(1L, 10, true);
+        Product vase = product(2L, 10, true);
+        vase.setFinalPrice(new BigDecimal("4.99"));
+        for (Product product : List.of(lamp, vase)) {
+            CartItem item = CartItem.builder().product(product).quantity(2).unitPrice(product.getFinalPrice()).build();
+            item.calculateTotalPrice();
+            cart.addItem(item);
+        }
+        when(cartRepository.findByUserIdAndActiveTrue(USER_ID)).thenReturn(Optional.of(cart));
+        when(cartRepository.findByUserIdWithItems(USER_ID)).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCartIdAndProductId(eq(1L), any())).thenAnswer(invocation ->
+                cart.getItems().stream().filter(item -> item.getProduct().getId().equals(invocation.getArgument(1))).findFirst());
+        assertEquals(4, cart.getTotalItems());
+        assertEquals(new BigDecimal("29.98"), cart.getTotalPrice());
+
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(1L);
+        request.setQuantity(5);
+        CartResponse response = databaseCartService.updateCartItem(USER_ID, 1L, request);
+        assertEquals(7, response.getTotalItems());
+        assertEquals(new BigDecimal("59.98"), response.getTotalPrice());
+
+        response = databaseCartService.removeItemFromCart(USER_ID, 2L);
+        assertEquals(5, response.getTotalItems());
+        assertEquals(new BigDecimal("50.00"), response.getTotalPrice());
+
+        // Re-added at the catalog's current price
+        response = apply(databaseCartService, operation("add", 2L, 1), operation("update", 1L, 1));
+        assertEquals(2, response.getTotalItems());
+        assertEquals(new BigDecimal("20.00"), response.getTotalPrice());
+
+        // The running totals agree with a full recount
+        assertEquals(Pricing.cartTotal(cart.getItems()), cart.getTotalPrice());
+        assertEquals(2, cart.getItems().stream().mapToInt(CartItem::getQuantity).sum());
+
+        response = databaseCartService.clearCart(USER_ID);
+        assertEquals(0, response.getTotalItems());
+        assertEquals(0, BigDecimal.ZERO.compareTo(response.getTotalPrice()));
+    }
+}
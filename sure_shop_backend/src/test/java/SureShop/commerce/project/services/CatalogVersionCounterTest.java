@@ -0,0 +1,62 @@
+package SureShop.commerce.project.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the real upsert against in-memory H2 in MySQL mode
+class CatalogVersionCounterTest {
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CatalogVersionCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:catalog" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE catalog_version (id INT PRIMARY KEY, version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO catalog_version VALUES (1, 100)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        counter = new CatalogVersionCounter(jdbcTemplate, 60_000);
+    }
+
+    private long stored() {
+        return jdbcTemplate.queryForObject("SELECT version FROM catalog_version WHERE id = 1", Long.class);
+    }
+
+    @Test
+    void testBumpAfterCommit_OncePerCommittedTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            counter.bumpAfterCommit();
+            counter.bumpAfterCommit();
+            assertEquals(100L, stored());
+        });
+        assertEquals(101L, stored());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            counter.bumpAfterCommit();
+            status.setRollbackOnly();
+        });
+        assertEquals(101L, stored());
+
+        transactionTemplate.executeWithoutResult(status -> counter.bumpAfterCommit());
+        assertEquals(102L, stored());
+    }
+
+    @Test
+    void testCurrent_ReusesReadUntilLocalBump() {
+        assertEquals(100L, counter.current());
+        // Another instance's bump is not seen within the refresh interval
+        jdbcTemplate.update("UPDATE catalog_version SET version = 150 WHERE id = 1");
+        assertEquals(100L, counter.current());
+
+        counter.bump();
+        assertEquals(151L, counter.current());
+    }
+}
@@ -0,0 +1,51 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorCodecTest {
+
+    @Test
+    void testDecode_RoundTripsSortKeyAndId() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 30, 5);
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode(createdAt, 42L));
+        assertEquals(createdAt.toString(), cursor.sortKey());
+        assertEquals(42L, cursor.id());
+
+        // Titles may hold the separator; the key still comes back whole
+        String sort = CursorCodec.sort("title", false);
+        cursor = CursorCodec.decode(CursorCodec.encode(sort, "Lamp\nshade", 7L), sort);
+        assertEquals("Lamp\nshade", cursor.sortKey());
+        assertEquals(7L, cursor.id());
+
+        cursor = CursorCodec.decode(CursorCodec.encode(null, 3L));
+        assertEquals("", cursor.sortKey());
+    }
+
+    @Test
+    void testDecode_RejectsCursorFromAnotherSort() {
+        String token = CursorCodec.encode(CursorCodec.sort("price", true), new BigDecimal("19.99"), 42L);
+
+        assertEquals(42L, CursorCodec.decode(token, CursorCodec.sort("price", true)).id());
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode(token, CursorCodec.sort("price", false)));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode(token, CursorCodec.sort("title", true)));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode(token));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode("not a cursor"));
+    }
+
+    @Test
+    void testToPage_NextCursorPointsAtLastReturnedRow() {
+        CursorPage<Long> page = CursorCodec.toPage(List.of(1L, 2L, 3L), 2, id -> CursorCodec.encode(id, id), id -> id);
+        assertEquals(List.of(1L, 2L), page.getItems());
+        assertEquals(2L, CursorCodec.decode(page.getNextCursor()).id());
+
+        page = CursorCodec.toPage(List.of(1L, 2L), 2, id -> CursorCodec.encode(id, id), id -> id);
+        assertNull(page.getNextCursor());
+    }
+}
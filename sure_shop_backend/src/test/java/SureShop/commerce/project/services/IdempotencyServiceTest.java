@@ -0,0 +1,190 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.IdempotencyRecord;
+import SureShop.commerce.project.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+    private static final Long USER_ID = 7L;
+    private static final String ENDPOINT = "checkout";
+    private static final String KEY = "key-1";
+    private static final Map<String, String> REQUEST = Map.of("cart", "1");
+
+    private IdempotencyRecordRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private ObjectMapper objectMapper;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        objectMapper = new ObjectMapper();
+        idempotencyService = new IdempotencyService(repository, objectMapper, transactionManager, 86400, 60, 1);
+        runs = new AtomicInteger();
+    }
+
+    private String requestHash() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsString(REQUEST).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ResponseEntity<String> execute() {
+        return idempotencyService.execute(USER_ID, ENDPOINT, KEY, REQUEST, String.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok("order-" + runs.get());
+        });
+    }
+
+    private IdempotencyRecord pending(String hash, LocalDateTime expiresAt) {
+        return IdempotencyRecord.builder()
+                .id(1L).userId(USER_ID).endpoint(ENDPOINT).idempotencyKey(KEY)
+                .requestHash(hash).claimToken("old-token").expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void testExecute_RollsBackWhenClaimWasTakenOver() {
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(1L);
+            return record;
+        });
+        when(repository.complete(eq(1L), anyString(), anyInt(), anyString(), any())).thenReturn(0);
+
+        assertThrows(RuntimeException.class, this::execute);
+
+        assertEquals(1, runs.get());
+        verify(transactionManager).rollback(any());
+        // The release only matches this request's token, so the new owner's claim survives
+        verify(repository).release(eq(1L), anyString());
+        verify(repository, never()).deleteById(any());
+    }
+
+    @Test
+    void testExecute_TakesOverTimedOutPendingClaimWithoutDeletingIt() throws Exception {
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(repository.findByUserIdAndEndpointAndIdempotencyKey(USER_ID, ENDPOINT, KEY))
+                .thenReturn(Optional.of(pending(requestHash(), LocalDateTime.now().minusSeconds(5))));
+        when(repository.takeOver(eq(1L), eq("old-token"), anyString(), any(), any())).thenReturn(1);
+        when(repository.complete(eq(1L), anyString(), anyInt(), anyString(), any())).thenReturn(1);
+
+        ResponseEntity<String> response = execute();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, runs.get());
+        verify(repository, never()).deleteById(any());
+        verify(repository, never()).deleteExpiredResponse(any(), any());
+    }
+
+    @Test
+    void testExecute_PendingClaimWithinTimeoutIsConflict() throws Exception {
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(repository.findByUserIdAndEndpointAndIdempotencyKey(USER_ID, ENDPOINT, KEY))
+                .thenReturn(Optional.of(pending(requestHash(), LocalDateTime.now().plusSeconds(30))));
+
+        ResponseEntity<String> response = execute();
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(0, runs.get());
+        verify(repository, never()).takeOver(any(), any(), any(), any(), any());
+    }
+
+    private void claimSucceeds() {
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(1L);
+            return record;
+        });
+        when(repository.complete(eq(1L), anyString(), anyInt(), anyString(), any())).thenReturn(1);
+    }
+
+    @Test
+    void testExecute_ReplaysStoredResponse() throws Exception {
+        claimSucceeds();
+        ResponseEntity<String> first = execute();
+        ResponseEntity<String> again = execute();
+
+        assertEquals("order-1", first.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(HttpStatus.OK, again.getStatusCode());
+        assertEquals("order-1", again.getBody());
+        assertEquals("true", again.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+
+        // Another instance finds the completed row instead
+        IdempotencyRecord completed = pending(requestHash(), LocalDateTime.now().plusHours(1));
+        completed.setStatusCode(200);
+        completed.setResponseBody("\"order-1\"");
+        doThrow(new DataIntegrityViolationException("duplicate")).when(repository).saveAndFlush(any());
+        when(repository.findByUserIdAndEndpointAndIdempotencyKey(USER_ID, ENDPOINT, KEY)).thenReturn(Optional.of(completed));
+        idempotencyService = new IdempotencyService(repository, objectMapper, transactionManager, 86400, 60, 1);
+
+        ResponseEntity<String> replayed = execute();
+        assertEquals("order-1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+
+        // The same key with a different request is refused
+        ResponseEntity<String> mismatch = idempotencyService.execute(USER_ID, ENDPOINT, KEY, Map.of("cart", "2"),
+                String.class, () -> ResponseEntity.ok("other"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, mismatch.getStatusCode());
+    }
+
+    @Test
+    void testExecute_ConcurrentDuplicateWaitsForFirstAndReplays() throws Exception {
+        claimSucceeds();
+        idempotencyService = new IdempotencyService(repository, objectMapper, transactionManager, 86400, 60, 5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute(USER_ID, ENDPOINT, KEY, REQUEST, String.class, () -> {
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    runs.incrementAndGet();
+                    return ResponseEntity.ok("order-1");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(this::execute);
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+
+        release.countDown();
+        assertEquals("order-1", first.get(5, TimeUnit.SECONDS).getBody());
+        ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.OK, replayed.getStatusCode());
+        assertEquals("order-1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+        verify(repository, times(1)).saveAndFlush(any());
+    }
+}
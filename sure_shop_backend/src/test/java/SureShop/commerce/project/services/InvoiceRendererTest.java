@@ -0,0 +1,26 @@
+package SureShop.commerce.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceRendererTest {
+
+    @Test
+    void testRender_ProducesPdf() {
+        InvoiceRenderer.InvoiceData invoice = new InvoiceRenderer.InvoiceData(42L, "CONFIRMED", LocalDateTime.now(),
+                "alice", "alice@example.com", "1 Main St", "pay_1", new BigDecimal("25.00"),
+                List.of(new InvoiceRenderer.InvoiceLine("Lamp", 2, new BigDecimal("10.00"), new BigDecimal("20.00")),
+                        new InvoiceRenderer.InvoiceLine("Bulb", 1, new BigDecimal("5.00"), new BigDecimal("5.00"))));
+
+        byte[] pdf = new InvoiceRenderer().render(invoice);
+
+        assertEquals("%PDF-", new String(pdf, 0, 5, StandardCharsets.US_ASCII));
+        assertTrue(new String(pdf, StandardCharsets.ISO_8859_1).contains("%%EOF"));
+    }
+}
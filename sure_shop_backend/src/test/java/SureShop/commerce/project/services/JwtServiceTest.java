@@ -0,0 +1,53 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Role;
+import SureShop.commerce.project.models.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService(long expirationMillis) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 10);
+        jwtService.init();
+        return jwtService;
+    }
+
+    private User user() {
+        return User.builder().id(42L).username("alice").roles(Set.of(Role.ROLE_ADMIN)).build();
+    }
+
+    @Test
+    void testVerifyToken_PrincipalFromClaims() {
+        JwtService jwtService = jwtService(60_000);
+        String token = jwtService.generateToken(user());
+
+        AuthenticatedUser principal = jwtService.extractPrincipal(jwtService.verifyToken(token));
+        assertEquals(42L, principal.getId());
+        assertEquals("alice", principal.getName());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().get(0).getAuthority());
+        // second verification is served from the cache
+        assertSame(jwtService.verifyToken(token), jwtService.verifyToken(token));
+    }
+
+    @Test
+    void testVerifyToken_RejectsTamperedAndExpiredTokens() {
+        JwtService jwtService = jwtService(60_000);
+        String token = jwtService.generateToken(user());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> jwtService.verifyToken(tampered));
+
+        JwtService expiring = jwtService(-1_000);
+        assertThrows(ExpiredJwtException.class, () -> expiring.verifyToken(expiring.generateToken(user())));
+    }
+}
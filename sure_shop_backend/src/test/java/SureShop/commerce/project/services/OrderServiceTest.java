@@ -0,0 +1,104 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.OrderResponse;
+import SureShop.commerce.project.models.Order;
+import SureShop.commerce.project.models.OrderItem;
+import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.models.Role;
+import SureShop.commerce.project.models.User;
+import SureShop.commerce.project.repositories.CartItemRepository;
+import SureShop.commerce.project.repositories.CartRepository;
+import SureShop.commerce.project.repositories.OrderItemRepository;
+import SureShop.commerce.project.repositories.OrderRepository;
+import SureShop.commerce.project.repositories.ProductRepository;
+import SureShop.commerce.project.repositories.ReviewRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Runs the order history queries through Hibernate against embedded H2 and counts the statements they send
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+class OrderServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    private OrderService orderService;
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = new ProductService(productRepository, mock(ReviewRepository.class),
+                mock(UserService.class), mock(ProductSearchIndex.class), new ProductCache(100, 300),
+                mock(ProductFacets.class), mock(TopRatedLeaderboard.class), mock(CatalogVersionCounter.class));
+        orderService = new OrderService(orderRepository, mock(OrderItemRepository.class), mock(CartRepository.class),
+                mock(CartItemRepository.class), mock(UserService.class), productService, mock(CartStore.class),
+                mock(StockService.class), mock(OrderEvents.class), mock(SalesRollups.class));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        user = entityManager.persist(User.builder().username("buyer").email("buyer@example.com").password("x")
+                .roles(Set.of(Role.ROLE_USER)).build());
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(1);
+        for (int o = 0; o < 12; o++) {
+            Order order = Order.builder().user(user).status(OrderStatus.CONFIRMED).totalPrice(new BigDecimal("30.00"))
+                    .shippingAddress("1 Main St").createdAt(createdAt.plusMinutes(o)).build();
+            for (int i = 0; i < 3; i++) {
+                Product product = entityManager.persist(Product.builder().title("P" + o + "-" + i)
+                        .price(new BigDecimal("10.00")).finalPrice(new BigDecimal("10.00")).category("home")
+                        .stockQuantity(5).images(List.of("p" + o + "-" + i + "-a.png", "p" + o + "-" + i + "-b.png"))
+                        .build());
+                order.getItems().add(OrderItem.builder().order(order).product(product).category("home").quantity(1)
+                        .unitPrice(new BigDecimal("10.00")).totalPrice(new BigDecimal("10.00")).build());
+            }
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testGetUserOrders_PageCostsFixedNumberOfQueries() {
+        statistics.clear();
+        Page<OrderResponse> page = orderService.getUserOrders(user.getId(), 0, 10);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(12, page.getTotalElements());
+        OrderResponse newest = page.getContent().get(0);
+        assertEquals(3, newest.getItems().size());
+        assertEquals("p11-0-a.png", newest.getItems().get(0).getProductImage());
+        // ids, count, orders with items and products, first images; nothing per order or per item
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testScrollUserOrders_PageCostsFixedNumberOfQueries() {
+        statistics.clear();
+        assertEquals(5, orderService.scrollUserOrders(user.getId(), null, 5).getItems().size());
+        // ids, orders with items and products, first images
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
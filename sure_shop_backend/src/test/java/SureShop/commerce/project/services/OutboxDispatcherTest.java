@@ -0,0 +1,103 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.OrderEvent;
+import SureShop.commerce.project.models.OutboxEvent;
+import SureShop.commerce.project.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTest {
+
+    private OutboxEventRepository repository;
+    private RecordingSink sink;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        sink = new RecordingSink();
+        dispatcher = new OutboxDispatcher(repository, mock(PlatformTransactionManager.class), List.of(sink),
+                Set.of("recording"), false, 10, 168);
+    }
+
+    private OutboxEvent event(long id, long orderId) {
+        return OutboxEvent.builder().id(id).orderId(orderId).eventType("ORDER_PLACED").payload("{}").build();
+    }
+
+    @Test
+    void testDispatchBatch_FailedEventHoldsBackLaterEventsOfSameOrder() {
+        when(repository.findPendingAfter(anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(event(1, 10), event(2, 20), event(3, 10), event(4, 20)));
+        sink.failingIds.add(2L);
+
+        assertEquals(2, dispatcher.dispatchBatch(new OutboxDispatcher.Run()));
+
+        assertEquals(List.of(1L, 3L), sink.delivered);
+        verify(repository).markDispatched(argThat((Collection<Long> ids) -> ids.equals(List.of(1L, 3L))), any());
+        verify(repository).markFailed(eq(2L), contains("sink down"));
+        verify(repository, never()).markFailed(eq(4L), anyString());
+    }
+
+    @Test
+    void testDispatchBatch_FlushFailureConfirmsNothing() {
+        when(repository.findPendingAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(event(1, 10)));
+        sink.failFlush = true;
+
+        assertEquals(0, dispatcher.dispatchBatch(new OutboxDispatcher.Run()));
+
+        verify(repository, never()).markDispatched(any(), any());
+    }
+
+    @Test
+    void testDispatch_PagesPastFailedEventsAtTheHead() {
+        dispatcher = new OutboxDispatcher(repository, mock(PlatformTransactionManager.class), List.of(sink),
+                Set.of("recording"), false, 2, 168);
+        when(repository.findPendingAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(event(1, 10), event(2, 20)));
+        when(repository.findPendingAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(event(3, 10), event(4, 30)));
+        when(repository.findPendingAfter(eq(4L), any(Pageable.class))).thenReturn(List.of());
+        sink.failingIds.addAll(List.of(1L, 2L));
+
+        dispatcher.dispatch();
+
+        // order 10 stays held back behind event 1 in the next batch too
+        assertEquals(List.of(4L), sink.delivered);
+        verify(repository).markDispatched(argThat((Collection<Long> ids) -> ids.equals(List.of(4L))), any());
+    }
+
+    private static class RecordingSink implements OrderEventSink {
+        final List<Long> delivered = new ArrayList<>();
+        final List<Long> failingIds = new ArrayList<>();
+        boolean failFlush;
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void deliver(OrderEvent event) {
+            if (failingIds.contains(event.getId())) {
+                throw new IllegalStateException("sink down");
+            }
+            delivered.add(event.getId());
+        }
+
+        @Override
+        public void flush() {
+            if (failFlush) {
+                throw new IllegalStateException("disk full");
+            }
+        }
+    }
+}
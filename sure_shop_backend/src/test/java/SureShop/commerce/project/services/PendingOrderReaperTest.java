@@ -0,0 +1,72 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Order;
+import SureShop.commerce.project.models.OrderStatus;
+import SureShop.commerce.project.repositories.OrderItemRepository;
+import SureShop.commerce.project.repositories.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PendingOrderReaperTest {
+
+    private OrderRepository orderRepository;
+    private OrderItemRepository orderItemRepository;
+    private JdbcTemplate jdbcTemplate;
+    private StockService stockService;
+    private OrderEvents orderEvents;
+    private PendingOrderReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        stockService = mock(StockService.class);
+        orderEvents = mock(OrderEvents.class);
+        reaper = new PendingOrderReaper(orderRepository, orderItemRepository, jdbcTemplate, stockService, orderEvents,
+                mock(SalesRollups.class), mock(PlatformTransactionManager.class), false, 30, 3);
+    }
+
+    @Test
+    void testReapChunk_RestocksOnlyOrdersThatWereStillPending() {
+        when(orderRepository.findIdsByStatusCreatedBefore(eq(OrderStatus.PENDING), any(), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L, 3L));
+        // Order 2 was paid between the select and the update
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0, 1});
+        when(orderItemRepository.sumQuantitiesByProduct(List.of(1L, 3L)))
+                .thenReturn(List.of(new Object[]{10L, 3L}, new Object[]{11L, 1L}));
+        when(orderRepository.findAllById(List.of(1L, 3L))).thenReturn(List.of(new Order(), new Order()));
+
+        PendingOrderReaper.Chunk chunk = reaper.reapChunk(LocalDateTime.now());
+
+        assertEquals(3, chunk.selected());
+        assertEquals(2, chunk.expired());
+        verify(stockService).release(Map.of(10L, 3, 11L, 1));
+        verify(orderEvents, times(2)).expired(any(Order.class));
+        assertEquals(4L, reaper.stats().get("unitsReleased"));
+    }
+
+    @Test
+    void testReap_StopsAtFirstShortChunk() {
+        when(orderRepository.findIdsByStatusCreatedBefore(eq(OrderStatus.PENDING), any(), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L, 3L), List.of(4L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 1}, new int[]{1});
+        when(orderItemRepository.sumQuantitiesByProduct(any(Collection.class))).thenReturn(List.of());
+        when(orderRepository.findAllById(any())).thenReturn(List.of());
+
+        assertEquals(4, reaper.reap());
+        verify(orderRepository, times(2)).findIdsByStatusCreatedBefore(any(), any(), any(Pageable.class));
+    }
+}
@@ -0,0 +1,79 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductFacetsResponse;
+import SureShop.commerce.project.dto.ProductSearchRequest;
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductFacetsTest {
+    private static final String[] CATEGORIES = {"garden", "home", "toys"};
+
+    private final ProductFacets facets = new ProductFacets(mock(ProductRepository.class), 1000,
+            new String[]{"25", "50", "100", "250", "500"});
+    private final Random random = new Random(42);
+
+    private Product product(long id) {
+        return Product.builder()
+                .id(id)
+                .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                .price(BigDecimal.valueOf(random.nextInt(70_000), 2))
+                .averageRating(BigDecimal.valueOf(random.nextInt(501), 2))
+                .stockQuantity(random.nextInt(3))
+                .active(random.nextInt(10) > 0)
+                .build();
+    }
+
+    private ProductSearchRequest filters(String category, String minPrice, String maxPrice, String minRating) {
+        ProductSearchRequest request = new ProductSearchRequest();
+        request.setCategory(category);
+        request.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : null);
+        request.setMaxPrice(maxPrice != null ? new BigDecimal(maxPrice) : null);
+        request.setMinRating(minRating != null ? new BigDecimal(minRating) : null);
+        return request;
+    }
+
+    // Reference counts: the same facets computed from the products of a search-scoped snapshot one by one
+    private ProductFacetsResponse productByProduct(ProductSearchRequest filters, List<Long> ids) {
+        return facets.snapshot(filters, ids);
+    }
+
+    @Test
+    void testSnapshot_CellsMatchProductByProductCounts() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            facets.update(product(id));
+            ids.add(id);
+        }
+        // moves between cells, deactivations and rating changes
+        for (long id = 1; id <= 500; id++) {
+            facets.update(product(id));
+        }
+        facets.updateRating(7L, new BigDecimal("4.50"));
+        facets.remove(8L);
+        facets.adjustStock(Map.of(9L, -1_000, 10L, 5, 8L, 3));
+
+        List<ProductSearchRequest> cases = List.of(
+                filters(null, null, null, null),
+                filters("home", null, null, null),
+                filters(null, "25", "100", null),
+                filters(null, "30.50", "260", "3.5"),
+                filters("toys", "0", "24.99", "4"),
+                filters(null, "500", null, "5"),
+                filters("garden", null, "60", "0.01"));
+        for (ProductSearchRequest request : cases) {
+            assertEquals(productByProduct(request, ids), facets.snapshot(request, null), request::toString);
+        }
+        assertEquals(facets.activeCount(), facets.snapshot(null, null).getTotalProducts());
+        assertEquals(List.of("garden", "home", "toys"), facets.categories());
+    }
+}
@@ -0,0 +1,70 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.ProductImportReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Runs the real batched inserts against in-memory H2 in MySQL mode
+class ProductImportServiceTest {
+    private JdbcTemplate jdbcTemplate;
+    private ProductImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255) NOT NULL, " +
+                "description VARCHAR(255), price DECIMAL(10,2) NOT NULL, discount DECIMAL(5,2), final_price DECIMAL(10,2), " +
+                "category VARCHAR(255) NOT NULL, stock_quantity INT NOT NULL, average_rating DECIMAL(3,2), " +
+                "total_reviews INT, rating_sum BIGINT, active BOOLEAN NOT NULL, version BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE product_images (product_id BIGINT NOT NULL, image_order INT NOT NULL, " +
+                "image_url VARCHAR(255))");
+        importService = new ProductImportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new ObjectMapper(), mock(ProductSearchIndex.class), mock(ProductFacets.class),
+                mock(TopRatedLeaderboard.class), mock(CatalogVersionCounter.class), 2);
+    }
+
+    private ProductImportReport importNdjson(String... lines) throws Exception {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return importService.importNdjson(new ByteArrayInputStream(body));
+    }
+
+    @Test
+    void testImportNdjson_RejectsBadLinesAndKeepsGoing() throws Exception {
+        ProductImportReport report = importNdjson(
+                "{\"title\":\"Lamp\",\"category\":\"home\",\"price\":19.99,\"stockQuantity\":4,\"images\":[\"a.png\"]}",
+                "{\"title\":\"Broken\",",
+                "null",
+                "",
+                "{\"title\":\"Yacht\",\"category\":\"toys\",\"price\":100000000,\"stockQuantity\":1}",
+                "{\"title\":\"Rug\",\"category\":\"home\",\"price\":5,\"discount\":150,\"stockQuantity\":1}",
+                "{\"title\":\"Chair\",\"category\":\"home\",\"price\":45.5,\"stockQuantity\":-1}",
+                "{\"title\":\"Vase\",\"category\":\"home\",\"price\":12,\"stockQuantity\":0}");
+
+        assertEquals(7, report.getReceived());
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getRejected());
+        assertEquals(0, report.getFailed());
+        assertEquals(List.of(
+                "record 2: malformed JSON",
+                "record 3: record must be an object",
+                "record 5: price must be at most 99999999.99",
+                "record 6: discount must be between 0 and 100",
+                "record 7: stockQuantity must be zero or more"), report.getErrors());
+        assertEquals(List.of("Lamp", "Vase"),
+                jdbcTemplate.queryForList("SELECT title FROM products ORDER BY id", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_images", Integer.class));
+    }
+}
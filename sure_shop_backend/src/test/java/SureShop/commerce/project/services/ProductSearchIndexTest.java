@@ -0,0 +1,64 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+    private final ProductSearchIndex index = new ProductSearchIndex(mock(ProductRepository.class), 1000, 2);
+
+    private Product product(long id, String title, String description, boolean active) {
+        return Product.builder().id(id).title(title).description(description).active(active).build();
+    }
+
+    @Test
+    void testSearch_MatchesSubstringLikeTheLikeQuery() {
+        index.index(product(3L, "Gaming Laptop", "Fast and light", true));
+        index.index(product(1L, "Office Laptop", "Quiet keyboard", true));
+        index.index(product(2L, "Laptop Bag", "Fits 15-inch laptops", true));
+
+        assertEquals(List.of(1L, 2L, 3L), index.search("APTO"));
+        assertEquals(List.of(1L), index.search("ice lap"));
+        assertEquals(List.of(2L), index.search("15"));
+        assertEquals(List.of(2L), index.search("5-i"));
+        // Words are not matched separately, and a match never spans title and description
+        assertTrue(index.search("laptop keyb").isEmpty());
+        assertTrue(index.search("laptop quiet").isEmpty());
+        assertTrue(index.search("phone").isEmpty());
+    }
+
+    @Test
+    void testSearch_SharedTrigramsAloneDoNotMatch() {
+        index.index(product(1L, "abc bcd", null, true));
+        index.index(product(2L, "xabcdx", null, true));
+
+        assertEquals(List.of(2L), index.search("abcd"));
+    }
+
+    @Test
+    void testIndex_UpdateAndDeactivateDropStalePostings() {
+        index.index(product(1L, "Red Shirt", null, true));
+        index.index(product(1L, "Blue Shirt", null, true));
+        assertTrue(index.search("red").isEmpty());
+        assertEquals(List.of(1L), index.search("blue"));
+
+        index.index(product(1L, "Blue Shirt", null, false));
+        assertTrue(index.search("shirt").isEmpty());
+    }
+
+    @Test
+    void testSearchForFilter_NullAboveLimit() {
+        index.index(product(1L, "Desk Lamp", null, true));
+        index.index(product(2L, "Floor Lamp", null, true));
+        assertEquals(List.of(1L, 2L), index.searchForFilter("lamp"));
+
+        index.index(product(3L, "Wall Lamp", null, true));
+        assertNull(index.searchForFilter("lamp"));
+        assertEquals(List.of(1L, 2L, 3L), index.search("lamp"));
+    }
+}
@@ -0,0 +1,107 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.dto.CartItemRequest;
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.CartItemRepository;
+import SureShop.commerce.project.repositories.CartRepository;
+import SureShop.commerce.project.repositories.ProductRepository;
+import SureShop.commerce.project.repositories.ReviewRepository;
+import SureShop.commerce.project.repositories.UserRepository;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductServiceTest {
+
+    // Stands in for a Hibernate collection whose session has closed
+    private static class SessionBoundList extends AbstractList<String> {
+        private final List<String> values;
+        private boolean closed;
+
+        SessionBoundList(List<String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public String get(int index) {
+            check();
+            return values.get(index);
+        }
+
+        @Override
+        public int size() {
+            check();
+            return values.size();
+        }
+
+        private void check() {
+            if (closed) {
+                throw new LazyInitializationException("no session");
+            }
+        }
+    }
+
+    @Test
+    void testCartPathCachesDetachedImages() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        CartRepository cartRepository = mock(CartRepository.class);
+        CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+        ProductCache productCache = new ProductCache(100, 300);
+        ProductService productService = new ProductService(productRepository, mock(ReviewRepository.class),
+                mock(UserService.class), mock(ProductSearchIndex.class), productCache, mock(ProductFacets.class),
+                mock(TopRatedLeaderboard.class), mock(CatalogVersionCounter.class));
+        CartStore cartStore = new CartStore(cartRepository, cartItemRepository, mock(UserRepository.class),
+                productRepository, mock(PlatformTransactionManager.class), "memory", 200, 1800);
+        CartService cartService = new CartService(cartRepository, cartItemRepository, productService,
+                mock(UserService.class), cartStore);
+
+        SessionBoundList images = new SessionBoundList(List.of("a.png", "b.png"));
+        Product product = Product.builder()
+                .id(1L).title("Lamp").price(new BigDecimal("20.00")).finalPrice(new BigDecimal("20.00")).category("home")
+                .stockQuantity(5).active(true).images(images).build();
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(1L);
+        request.setQuantity(1);
+        cartService.addItemToCart(7L, request);
+        images.closed = true;
+
+        assertEquals(List.of("a.png", "b.png"), productService.getProduct(1L).getImages());
+        verify(productRepository, times(1)).findById(1L);
+        cartStore.shutdown();
+    }
+
+    @Test
+    void testGetProduct_DoesNotCacheVersionInvalidatedWhileLoading() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductCache productCache = new ProductCache(100, 300);
+        ProductService productService = new ProductService(productRepository, mock(ReviewRepository.class),
+                mock(UserService.class), mock(ProductSearchIndex.class), productCache, mock(ProductFacets.class),
+                mock(TopRatedLeaderboard.class), mock(CatalogVersionCounter.class));
+        Product stale = Product.builder().id(1L).title("Lamp").price(new BigDecimal("20.00"))
+                .finalPrice(new BigDecimal("20.00")).category("home").stockQuantity(5).active(true).version(3L).build();
+        Product current = Product.builder().id(1L).title("Lamp").price(new BigDecimal("18.00"))
+                .finalPrice(new BigDecimal("18.00")).category("home").stockQuantity(5).active(true).version(4L).build();
+        // The first load reads version 3, then an update commits and invalidates before the response is cached
+        when(productRepository.findById(1L)).thenAnswer(invocation -> {
+            productCache.invalidate(1L);
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(current));
+
+        assertEquals(3L, productService.getProduct(1L).getVersion());
+        assertNull(productCache.get(1L));
+
+        assertEquals(4L, productService.getProduct(1L).getVersion());
+        assertEquals(4L, productService.getProduct(1L).getVersion());
+        verify(productRepository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,120 @@
+package SureShop.commerce.project.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the real upserts against in-memory H2 in MySQL mode
+class SalesRollupsTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    private JdbcTemplate jdbcTemplate;
+    private SalesRollups salesRollups;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:rollups" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, status VARCHAR(20) NOT NULL, " +
+                "created_at TIMESTAMP NOT NULL, total_price DECIMAL(10,2) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT NOT NULL, " +
+                "product_id BIGINT NOT NULL, category VARCHAR(255) NOT NULL, quantity INT NOT NULL, total_price DECIMAL(10,2) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sales_daily (sales_date DATE, slot INT, order_count BIGINT NOT NULL, " +
+                "units BIGINT NOT NULL, revenue DECIMAL(14,2) NOT NULL, PRIMARY KEY (sales_date, slot))");
+        jdbcTemplate.execute("CREATE TABLE sales_daily_product (sales_date DATE, product_id BIGINT, slot INT, order_count BIGINT NOT NULL, " +
+                "units BIGINT NOT NULL, revenue DECIMAL(14,2) NOT NULL, PRIMARY KEY (sales_date, product_id, slot))");
+        jdbcTemplate.execute("CREATE TABLE sales_daily_category (sales_date DATE, category VARCHAR(255), slot INT, order_count BIGINT NOT NULL, " +
+                "units BIGINT NOT NULL, revenue DECIMAL(14,2) NOT NULL, PRIMARY KEY (sales_date, category, slot))");
+        jdbcTemplate.update("INSERT INTO products VALUES (1, 'home'), (2, 'home'), (3, 'garden')");
+        // Order 1: two products of one category; order 2: one of each category; order 3 is cancelled
+        jdbcTemplate.update("INSERT INTO orders VALUES (1, 'CONFIRMED', '2025-03-14 09:00:00', 30.00), " +
+                "(2, 'PENDING', '2025-03-14 18:30:00', 25.00), (3, 'CANCELLED', '2025-03-14 20:00:00', 10.00)");
+        jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, category, quantity, total_price) VALUES " +
+                "(1, 1, 'home', 2, 20.00), (1, 2, 'home', 1, 10.00), (2, 1, 'home', 1, 10.00), " +
+                "(2, 3, 'garden', 3, 15.00), (3, 1, 'home', 1, 10.00)");
+        salesRollups = new SalesRollups(jdbcTemplate, 8, 1);
+    }
+
+    private Map<String, Object> daily() {
+        return jdbcTemplate.queryForMap("SELECT SUM(order_count) AS orders, SUM(units) AS units, SUM(revenue) AS revenue " +
+                "FROM sales_daily WHERE sales_date = ?", DAY);
+    }
+
+    private Map<String, Object> category(String category) {
+        return jdbcTemplate.queryForMap("SELECT SUM(order_count) AS order_count, SUM(units) AS units, " +
+                "SUM(revenue) AS revenue FROM sales_daily_category WHERE sales_date = ? AND category = ?", DAY, category);
+    }
+
+    @Test
+    void testAdd_CountsEachOrderOncePerRow() {
+        salesRollups.add(List.of(1L));
+        salesRollups.add(List.of(2L));
+
+        Map<String, Object> daily = daily();
+        assertEquals(2L, ((Number) daily.get("orders")).longValue());
+        assertEquals(7L, ((Number) daily.get("units")).longValue());
+        assertEquals(0, new BigDecimal("55.00").compareTo((BigDecimal) daily.get("revenue")));
+        Map<String, Object> home = category("home");
+        assertEquals(2L, ((Number) home.get("order_count")).longValue());
+        assertEquals(4L, ((Number) home.get("units")).longValue());
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT SUM(order_count) FROM sales_daily_product " +
+                "WHERE sales_date = ? AND product_id = 1", Long.class, DAY));
+    }
+
+    @Test
+    void testAdd_SpreadsProductAndCategoryRowsOverSlots() {
+        salesRollups.add(List.of(1L));
+        salesRollups.add(List.of(2L));
+
+        // Orders 1 and 2 land in slots 1 and 2, so they never update the same product or category row
+        assertEquals(List.of(1, 2), jdbcTemplate.queryForList("SELECT slot FROM sales_daily_category " +
+                "WHERE sales_date = ? AND category = 'home' ORDER BY slot", Integer.class, DAY));
+        assertEquals(List.of(1, 2), jdbcTemplate.queryForList("SELECT slot FROM sales_daily_product " +
+                "WHERE sales_date = ? AND product_id = 1 ORDER BY slot", Integer.class, DAY));
+    }
+
+    @Test
+    void testRemove_ReversesAdd() {
+        salesRollups.add(List.of(1L, 2L));
+        salesRollups.remove(List.of(2L));
+
+        assertEquals(1L, ((Number) daily().get("orders")).longValue());
+        assertEquals(0L, ((Number) category("garden").get("order_count")).longValue());
+    }
+
+    @Test
+    void testRemove_UsesCategoryAtCheckout() {
+        salesRollups.add(List.of(2L));
+        jdbcTemplate.update("UPDATE products SET category = 'outdoor' WHERE id = 3");
+        salesRollups.remove(List.of(2L));
+
+        assertEquals(0L, ((Number) category("garden").get("order_count")).longValue());
+        assertEquals(0L, ((Number) category("home").get("order_count")).longValue());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sales_daily_category " +
+                "WHERE category = 'outdoor'", Integer.class));
+    }
+
+    @Test
+    void testRebuildDay_MatchesIncrementalTotals() {
+        salesRollups.add(List.of(1L, 2L));
+        List<Map<String, Object>> incremental = jdbcTemplate.queryForList(
+                "SELECT * FROM sales_daily_category ORDER BY category, slot");
+        Map<String, Object> incrementalDaily = daily();
+
+        // Chunk size 1: every order is read in its own chunk
+        salesRollups.rebuildDay(DAY);
+
+        assertEquals(incremental, jdbcTemplate.queryForList("SELECT * FROM sales_daily_category ORDER BY category, slot"));
+        assertEquals(incrementalDaily, daily());
+    }
+}
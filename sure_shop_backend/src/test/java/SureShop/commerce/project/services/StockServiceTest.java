@@ -0,0 +1,124 @@
+package SureShop.commerce.project.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Runs the real UPDATE statements against in-memory H2
+class StockServiceTest {
+    private static final int THREADS = 64;
+    private static final int CHECKOUTS = 500;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private StockService stockService;
+    private ProductFacets productFacets;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock_quantity INT NOT NULL, " +
+                "active BOOLEAN NOT NULL, version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO products VALUES (1, 50, true, 0), (2, 120, true, 0), (3, 5, false, 0)");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        productFacets = mock(ProductFacets.class);
+        stockService = new StockService(jdbcTemplate, productFacets, mock(ProductCache.class));
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    // One checkout: reserve, and roll everything back if any product fell short
+    private boolean checkout(Map<Long, Integer> quantities) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!stockService.reserve(quantities).isEmpty()) {
+                    throw new RuntimeException("Product out of stock");
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void testReserve_ConcurrentCheckoutsNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // Alternate the map order so callers hand products over in both orders
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            if (i % 2 == 0) {
+                quantities.put(1L, 1);
+                quantities.put(2L, 2);
+            } else {
+                quantities.put(2L, 2);
+                quantities.put(1L, 1);
+            }
+            results.add(executor.submit(() -> {
+                start.await();
+                return checkout(quantities);
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Product 1 limits the run to 50 checkouts; failed checkouts gave product 2 back
+        assertEquals(50, succeeded);
+        assertEquals(0, stock(1L));
+        assertEquals(20, stock(2L));
+    }
+
+    @Test
+    void testReserve_ShortOrInactiveProductsAreReported() {
+        assertEquals(List.of(3L), stockService.reserve(Map.of(1L, 1, 3L, 1)));
+        assertEquals(List.of(1L), stockService.reserve(Map.of(1L, 100)));
+    }
+
+    @Test
+    void testRelease_RestoresStock() {
+        assertTrue(checkout(Map.of(1L, 10)));
+        transactionTemplate.executeWithoutResult(status -> stockService.release(Map.of(1L, 10)));
+        assertEquals(50, stock(1L));
+    }
+
+    @Test
+    void testReserve_FacetsFollowCommittedDeltasOnly() {
+        assertTrue(checkout(Map.of(1L, 3, 2L, 4)));
+        verify(productFacets).adjustStock(Map.of(1L, -3, 2L, -4));
+
+        assertFalse(checkout(Map.of(1L, 1, 3L, 1)));
+        transactionTemplate.executeWithoutResult(status -> stockService.release(Map.of(1L, 3)));
+        verify(productFacets).adjustStock(Map.of(1L, 3));
+        verifyNoMoreInteractions(productFacets);
+    }
+}
@@ -0,0 +1,77 @@
+package SureShop.commerce.project.services;
+
+import SureShop.commerce.project.models.Product;
+import SureShop.commerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TopRatedLeaderboardTest {
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final TopRatedLeaderboard leaderboard = new TopRatedLeaderboard(productRepository, 2);
+
+    private Product product(long id, String rating, int reviews) {
+        return Product.builder().id(id).averageRating(new BigDecimal(rating)).totalReviews(reviews).active(true).build();
+    }
+
+    @Test
+    void testUpdate_PromotesWithoutTouchingDatabase() {
+        when(productRepository.findTopRatedProducts(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(product(1L, "4.5", 10), product(2L, "4.0", 3))));
+        assertEquals(List.of(1L, 2L), leaderboard.page(0, 2));
+
+        leaderboard.update(product(3L, "4.0", 8));
+        assertEquals(List.of(1L, 3L), leaderboard.page(0, 2));
+        verify(productRepository, times(1)).findTopRatedProducts(any(Pageable.class));
+    }
+
+    @Test
+    void testUpdate_DemotionBelowTailRefillsFromDatabase() {
+        when(productRepository.findTopRatedProducts(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(product(1L, "4.5", 10), product(2L, "4.0", 3))))
+                .thenReturn(new PageImpl<>(List.of(product(2L, "4.0", 3), product(4L, "3.5", 1))));
+        leaderboard.page(0, 2);
+
+        leaderboard.update(product(1L, "1.0", 11));
+        assertEquals(List.of(2L, 4L), leaderboard.page(0, 2));
+        verify(productRepository, times(2)).findTopRatedProducts(any(Pageable.class));
+    }
+
+    @Test
+    void testPage_BeyondCapacityIsNotServed() {
+        assertNull(leaderboard.page(1, 2));
+        assertNull(leaderboard.page(0, 3));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testLoad_ReadyWithWholeCatalogSize() {
+        when(productRepository.findTopRatedProducts(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(product(1L, "4.5", 10))));
+        assertFalse(leaderboard.isReady());
+
+        leaderboard.load();
+
+        assertTrue(leaderboard.isReady());
+        assertTrue(leaderboard.holdsWholeCatalog());
+        assertEquals(1, leaderboard.size());
+    }
+
+    @Test
+    void testPage_PastLastRankedProduct() {
+        TopRatedLeaderboard wide = new TopRatedLeaderboard(productRepository, 4);
+        when(productRepository.findTopRatedProducts(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(product(1L, "4.5", 10))));
+        wide.load();
+        // The whole catalog is ranked, so there is nothing past it
+        assertEquals(List.of(), wide.page(1, 2));
+        verify(productRepository, times(1)).findTopRatedProducts(any(Pageable.class));
+    }
+}